@@ -1,7 +1,11 @@
 package com.project;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Formula;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import java.io.Serializable;
+import java.time.Instant;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
@@ -10,10 +14,30 @@ import java.util.stream.Collectors;
 
 // @Entity: Marca aquesta classe com una entitat JPA que es mapeja a una taula de la base de dades.
 // Serializable: Permet que l'objecte es pugui convertir en bytes (necessari per caché, sessions, etc.)
+// @NaturalIdCache: Guarda a la caché de segon nivell la correspondència uuid -> cartId,
+// així les cerques repetides per UUID s'estalvien la consulta de resolució.
+// @NamedEntityGraph: Pla de càrrega amb nom (veure FetchPlan.CART_WITH_ITEMS).
+// @NamedQuery: Consultes validades i compilades en crear el SessionFactory (veure Queries).
+// @Index a lastActivity: l'arxivat cerca els carts inactius sense recórrer tota la taula.
 @Entity
-@Table(name = "carts")
+@NaturalIdCache
+@NamedEntityGraph(name = Cart.GRAPH_WITH_ITEMS, attributeNodes = @NamedAttributeNode("items"))
+@NamedQuery(name = Queries.CART_FIND_ALL, query = "FROM Cart")
+@NamedQuery(name = Queries.CART_FIND_ALL_WITH_ITEMS, query = "SELECT c FROM Cart c LEFT JOIN FETCH c.items")
+@NamedQuery(name = Queries.CART_WITH_ITEMS_BY_UUID,
+            query = "SELECT c FROM Cart c LEFT JOIN FETCH c.items WHERE c.uuid = :uuid")
+@NamedQuery(name = Queries.CART_INACTIVE_IDS,
+            query = "SELECT c.cartId FROM Cart c WHERE c.lastActivity < :cutoff AND c.cartId > :afterId ORDER BY c.cartId")
+@NamedQuery(name = Queries.CART_WITH_ITEMS_BY_IDS,
+            query = "SELECT c FROM Cart c LEFT JOIN FETCH c.items WHERE c.cartId IN :ids")
+@NamedQuery(name = Queries.CART_ITEM_COUNTS,
+            query = "SELECT c.cartId, COUNT(i) FROM Cart c LEFT JOIN c.items i GROUP BY c.cartId")
+@NamedQuery(name = Queries.CART_COUNT_BY_TYPE, query = "SELECT c.type, COUNT(c) FROM Cart c GROUP BY c.type")
+@Table(name = "carts", indexes = @Index(name = "idx_carts_lastActivity", columnList = "lastActivity"))
 public class Cart implements Serializable {
 
+    public static final String GRAPH_WITH_ITEMS = "Cart.items";
+
     // @Id: Defineix la clau primària de l'entitat.
     // @GeneratedValue(IDENTITY): La BBDD genera automàticament el valor (auto-increment).
     @Id
@@ -32,9 +56,30 @@ public class Cart implements Serializable {
 
     // UUID: Identificador únic generat ABANS de guardar a la BBDD.
     // Útil per equals/hashCode ja que cartId és null fins que es persisteix.
+    // @NaturalId: És la clau "de negoci" (immutable) que usen els sistemes externs.
+    @NaturalId
     @Column(name = "uuid", nullable = false, updatable = false, unique = true)
     private String uuid = UUID.randomUUID().toString();
 
+    // @Version: Control de concurrència OPTIMISTA.
+    // Hibernate incrementa aquest número a cada UPDATE i afegeix "WHERE version = ?".
+    // Si una altra transacció ja l'ha canviat, l'UPDATE no troba la fila i es llança
+    // OptimisticLockException (en lloc de sobreescriure els canvis de l'altre silenciosament).
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    // @Formula: Camp calculat per la BBDD amb una subconsulta (no és una columna real).
+    // Permet saber quants items té el cart SENSE inicialitzar la col·lecció "items".
+    // Atenció: és una foto del moment de la càrrega, no es recalcula en memòria.
+    @Formula("(SELECT COUNT(*) FROM items i WHERE i.cartId = cartId)")
+    private int itemCount;
+
+    // ÚLTIMA ACTIVITAT: Es posa en crear el cart i a cada UPDATE (@PreUpdate).
+    // Els carts sense activitat des de fa temps es poden moure a l'arxiu (veure CartArchiver).
+    @Column(name = "lastActivity", nullable = false)
+    private Instant lastActivity = Instant.now();
+
     public Cart() {}
 
     public Cart(String type) {
@@ -46,6 +91,17 @@ public class Cart implements Serializable {
     public String getType() { return type; }
     public void setType(String type) { this.type = type; }
     public Set<Item> getItems() { return items; }
+    public int getItemCount() { return itemCount; }
+    public Long getVersion() { return version; }
+    public String getUuid() { return uuid; }
+    public Instant getLastActivity() { return lastActivity; }
+
+    // @PreUpdate: Només s'executa si el cart ja està "dirty"; updateCart i updateItem
+    // criden touch() directament perquè canviar només els items no modifica cap columna de carts.
+    @PreUpdate
+    public void touch() {
+        lastActivity = Instant.now();
+    }
 
     public void setItems(Set<Item> items) {
         this.items.clear();
@@ -0,0 +1,68 @@
+package com.project;
+
+import org.hibernate.Session;
+import org.hibernate.graph.RootGraph;
+
+/**
+ * PLA DE CÀRREGA (fetch plan): Quines relacions s'han de carregar JUNTES amb l'entitat arrel.
+ *
+ * Es tradueix a un ENTITY GRAPH de JPA aplicat amb semàntica FETCH:
+ * els atributs del graf es carreguen a la mateixa consulta (JOIN) i la resta queden LAZY.
+ * Així cada crida carrega exactament el que necessita: ni més (over-fetching)
+ * ni menys (LazyInitializationException o consultes extra després).
+ *
+ * - Plans predefinits: usen els @NamedEntityGraph declarats a Cart i Item.
+ * - Plans dinàmics: FetchPlan.of(Cart.class, "items") crea el graf en temps d'execució.
+ */
+public final class FetchPlan<T> {
+
+    /** Només el Cart; els items queden LAZY (útil per llistats). */
+    public static final FetchPlan<Cart> CART_ONLY = new FetchPlan<>(Cart.class, null);
+
+    /** Cart + Items en una sola consulta (el comportament clàssic de getCartWithItems). */
+    public static final FetchPlan<Cart> CART_WITH_ITEMS = new FetchPlan<>(Cart.class, Cart.GRAPH_WITH_ITEMS);
+
+    /** Només l'Item; el cart queda com a proxy LAZY. */
+    public static final FetchPlan<Item> ITEM_ONLY = new FetchPlan<>(Item.class, null);
+
+    /** Item + el seu Cart en una sola consulta. */
+    public static final FetchPlan<Item> ITEM_WITH_CART = new FetchPlan<>(Item.class, Item.GRAPH_WITH_CART);
+
+    private final Class<T> root;
+    private final String graphName;
+    private final String[] attributes;
+
+    private FetchPlan(Class<T> root, String graphName, String... attributes) {
+        this.root = root;
+        this.graphName = graphName;
+        this.attributes = attributes;
+    }
+
+    /** Pla DINÀMIC: carrega l'arrel i els atributs indicats (p.ex. "items"). */
+    public static <T> FetchPlan<T> of(Class<T> root, String... attributes) {
+        return new FetchPlan<>(root, null, attributes);
+    }
+
+    /** Pla sense graf: es respecta el LAZY/EAGER del mapeig. */
+    public static <T> FetchPlan<T> none(Class<T> root) {
+        return new FetchPlan<>(root, null);
+    }
+
+    public Class<T> getRoot() {
+        return root;
+    }
+
+    // Sense graf → null (el Manager no aplica cap entity graph)
+    @SuppressWarnings("unchecked")
+    RootGraph<T> toGraph(Session session) {
+        if (graphName != null) {
+            return (RootGraph<T>) session.getEntityGraph(graphName);
+        }
+        if (attributes.length == 0) {
+            return null;
+        }
+        RootGraph<T> graph = session.createEntityGraph(root);
+        graph.addAttributeNodes(attributes);
+        return graph;
+    }
+}
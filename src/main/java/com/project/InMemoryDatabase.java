@@ -0,0 +1,113 @@
+package com.project;
+
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.hibernate.SessionFactory;
+
+import com.project.memory.InMemorySqlite;
+
+/**
+ * BBDD EN MEMÒRIA AÏLLADA: un SessionFactory propi sobre una BBDD SQLite en memòria nova.
+ *
+ * Manager és estàtic (una sola BBDD per JVM). Cada InMemoryDatabase, en canvi, és
+ * independent: se'n poden tenir diverses d'obertes alhora (p.ex. tests en paral·lel),
+ * cadascuna amb les seves dades i les seves caches, sense tocar l'estat de Manager.
+ *
+ *   try (InMemoryDatabase db = InMemoryDatabase.open()) {
+ *       Cart cart = db.fromTransaction(uow -> uow.addCart("Test"));
+ *   }
+ *
+ * Les operacions passen per UnitOfWork, amb la mateixa política de reintents que Manager.
+ * L'índex cart-items, els comptadors i el change feed són només del Manager estàtic.
+ */
+public final class InMemoryDatabase implements AutoCloseable {
+
+    private final InMemorySqlite database;
+    private final SessionFactory factory;
+
+    private InMemoryDatabase(InMemorySqlite database, SessionFactory factory) {
+        this.database = database;
+        this.factory = factory;
+    }
+
+    public static InMemoryDatabase open() {
+        return open("hibernate.properties", null);
+    }
+
+    /**
+     * @param snapshot fitxer SQLite amb què s'omple la BBDD abans d'arrencar
+     *                 (p.ex. un snapshotTo() anterior), o null per començar buida
+     */
+    public static InMemoryDatabase open(String propertiesFileName, Path snapshot) {
+        InMemorySqlite database = null;
+        try {
+            Properties properties = Manager.loadProperties(propertiesFileName);
+            properties.setProperty("project.engine", "memory");
+            database = Manager.startInMemory(properties, snapshot);
+            return new InMemoryDatabase(database, Manager.buildSessionFactory(properties));
+        } catch (Throwable ex) {
+            System.err.println("Error en crear la BBDD en memòria: " + ex);
+            if (database != null) {
+                try {
+                    database.close();
+                } catch (SQLException closeError) {
+                    ex.addSuppressed(closeError);
+                }
+            }
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // UNITAT DE TREBALL (com Manager.inTransaction / fromTransaction)
+    // ═══════════════════════════════════════════════════════════════════
+
+    // @return true si s'ha confirmat, false si s'han esgotat els reintents per conflictes
+    public boolean inTransaction(Consumer<UnitOfWork> work) {
+        return Manager.runWithRetry(factory, "inTransaction", session -> {
+            work.accept(new UnitOfWork(session));
+            return true;
+        }, false, true);
+    }
+
+    // Com inTransaction, però retorna un resultat (null si s'han esgotat els reintents)
+    public <R> R fromTransaction(Function<UnitOfWork, R> work) {
+        return Manager.runWithRetry(factory, "fromTransaction",
+            session -> work.apply(new UnitOfWork(session)), null, true);
+    }
+
+    // Per a consultes pròpies (sessions obertes i tancades pel cridador)
+    public SessionFactory getSessionFactory() {
+        return factory;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // SNAPSHOTS I TANCAMENT
+    // ═══════════════════════════════════════════════════════════════════
+
+    // SNAPSHOT: Copia la BBDD a un fitxer SQLite normal (es pot reobrir amb open(..., snapshot))
+    public boolean snapshotTo(Path file) {
+        try {
+            database.backupTo(file);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error guardant el snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Primer el factory i després l'àncora: en tancar-la, SQLite esborra la BBDD
+    @Override
+    public void close() {
+        factory.close();
+        try {
+            database.close();
+        } catch (SQLException e) {
+            System.err.println("Error tancant la BBDD en memòria: " + e.getMessage());
+        }
+    }
+}
@@ -1,15 +1,30 @@
 package com.project;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
 import java.io.Serializable;
 import java.util.Objects;
 import java.util.UUID;
 
 // @Entity: Marca aquesta classe com una entitat JPA mapejada a la taula "items".
+// @NaturalIdCache: Resolució uuid -> itemId en caché (veure Cart).
 @Entity
+@NaturalIdCache
+@NamedEntityGraph(name = Item.GRAPH_WITH_CART, attributeNodes = @NamedAttributeNode("cart"))
+@NamedQuery(name = Queries.ITEM_FIND_ALL, query = "FROM Item")
+@NamedQuery(name = Queries.ITEM_COUNT_BY_CART,
+            query = "SELECT COUNT(i) FROM Item i WHERE i.cart.cartId = :cartId")
+@NamedQuery(name = Queries.ITEM_COUNT_IN_CART,
+            query = "SELECT COUNT(i) FROM Item i WHERE i.itemId = :itemId AND i.cart.cartId = :cartId")
+@NamedQuery(name = Queries.ITEM_COUNT_ORPHANS, query = "SELECT COUNT(i) FROM Item i WHERE i.cart IS NULL")
+@NamedNativeQuery(name = Queries.ITEM_CART_MEMBERSHIP,
+                  query = "SELECT itemID, cartId, version FROM items WHERE cartId IS NOT NULL")
 @Table(name = "items")
 public class Item implements Serializable {
 
+    public static final String GRAPH_WITH_CART = "Item.cart";
+
     // CLAU PRIMÀRIA amb auto-increment gestionat per la BBDD.
     @Id
     @GeneratedValue(strategy=GenerationType.IDENTITY)
@@ -28,21 +43,38 @@ public class Item implements Serializable {
 
     // UUID: Identificador únic generat al crear l'objecte.
     // Necessari per equals/hashCode quan itemId encara és null (abans de persist).
+    // @NaturalId: Permet cercar l'Item pel seu UUID (Manager.findItemByUuid).
+    @NaturalId
     @Column(name = "uuid", nullable = false, updatable = false, unique = true)
     private String uuid = UUID.randomUUID().toString();
 
+    // @Version: Bloqueig optimista, igual que a Cart.
+    // Dos updateItem simultanis sobre el mateix Item ja no es trepitgen: el segon falla i es reintenta.
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     public Item() {}
 
     public Item(String name) {
         this.name = name;
     }
 
+    // CÒPIA amb el mateix UUID: ShardedManager la fa servir per moure un Item
+    // a un altre shard (fitxer) conservant la seva identitat (equals/hashCode).
+    Item(String uuid, String name) {
+        this.uuid = uuid;
+        this.name = name;
+    }
+
     public Long getItemId() { return itemId; }
     public void setItemId(Long itemId) { this.itemId = itemId; }
     public String getName() { return name; }
     public void setName(String name) { this.name = name; }
     public Cart getCart() { return cart; }
     public void setCart(Cart cart) { this.cart = cart; }
+    public Long getVersion() { return version; }
+    public String getUuid() { return uuid; }
 
     @Override
     public String toString() {
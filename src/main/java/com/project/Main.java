@@ -41,12 +41,16 @@ public class Main {
         Set<Item> itemsCart1 = new HashSet<>();
         itemsCart1.add(refItem1);
         itemsCart1.add(refItem2);
-        Manager.updateCart(refCart1.getCartId(), refCart1.getType(), itemsCart1);
 
         Set<Item> itemsCart2 = new HashSet<>();
         itemsCart2.add(refItem4);
         itemsCart2.add(refItem5);
-        Manager.updateCart(refCart2.getCartId(), refCart2.getType(), itemsCart2);
+
+        // UNITAT DE TREBALL: Les dues assignacions amb una sola sessió i un sol commit
+        Manager.inTransaction(uow -> {
+            uow.updateCart(refCart1.getCartId(), refCart1.getType(), itemsCart1);
+            uow.updateCart(refCart2.getCartId(), refCart2.getType(), itemsCart2);
+        });
 
         printState("2. ASSIGNACIÓ D'ITEMS", "Després d'actualitzar relacions");
 
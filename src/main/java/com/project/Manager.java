@@ -3,18 +3,72 @@ package com.project;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.net.URI;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+
+import jakarta.persistence.LockTimeoutException;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+
+import org.hibernate.FlushMode;
+import org.hibernate.IdentifierLoadAccess;
 import org.hibernate.Session; 
+import org.hibernate.SimpleNaturalIdLoadAccess;
+import org.hibernate.StaleStateException;
 import org.hibernate.Transaction;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cache.jcache.ConfigSettings;
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.exception.LockAcquisitionException;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.graph.RootGraph;
+import org.hibernate.metamodel.mapping.NaturalIdMapping;
+import org.hibernate.query.SelectionQuery;
+import org.hibernate.stat.Statistics;
+import org.ehcache.core.config.DefaultConfiguration;
+import org.ehcache.jsr107.EhcacheCachingProvider;
+
+import com.project.aggregates.AggregateCounterListener;
+import com.project.aggregates.AggregateCounters;
+import com.project.aggregates.CartAggregates;
+import com.project.archive.CartArchiver;
+import com.project.events.ChangeEventListener;
+import com.project.events.ChangeFeed;
+import com.project.index.CartItemIndex;
+import com.project.index.CartItemIndexListener;
+import com.project.memory.InMemorySqlite;
+import com.project.monitoring.MonitoredConnectionProvider;
+import com.project.search.ItemSearch;
+import com.project.search.ItemSearchHit;
 
 /**
  * Classe MANAGER: Patró DAO (Data Access Object)
@@ -27,6 +81,15 @@ public class Manager {
     // Gestiona la connexió amb la BBDD i la creació de sessions.
     private static SessionFactory factory;
 
+    // Propietats amb què s'ha creat el factory (l'arxiu les reutilitza canviant la URL)
+    private static Properties settings;
+
+    // Factory de la BBDD d'arxiu (null si no s'ha activat amb enableArchive)
+    private static volatile SessionFactory archiveFactory;
+
+    // BBDD SQLite en memòria (null en el mode normal, amb fitxer)
+    private static InMemorySqlite inMemory;
+
     // ═══════════════════════════════════════════════════════════════════
     // INICIALITZACIÓ DE HIBERNATE
     // ═══════════════════════════════════════════════════════════════════
@@ -36,40 +99,237 @@ public class Manager {
     }
 
     public static void createSessionFactory(String propertiesFileName) {
+        requireNoInMemory();
         try {
-            // CONFIGURATION: Configura Hibernate programàticament
-            Configuration configuration = new Configuration();
-            
-            // Registrem les classes @Entity que Hibernate ha de gestionar
-            configuration.addAnnotatedClass(Cart.class);
-            configuration.addAnnotatedClass(Item.class);
-
-            // Carreguem les propietats des del fitxer (URL BBDD, usuari, contrasenya...)
-            Properties properties = new Properties();
-            try (InputStream input = Manager.class.getClassLoader().getResourceAsStream(propertiesFileName)) {
-                if (input == null) {
-                    throw new IOException("No s'ha pogut trobar " + propertiesFileName);
-                }
-                properties.load(input);
+            settings = loadProperties(propertiesFileName);
+            // project.engine=memory: la mateixa configuració, però amb la BBDD en memòria
+            if ("memory".equalsIgnoreCase(settings.getProperty("project.engine"))) {
+                inMemory = startInMemory(settings, null);
             }
-            configuration.addProperties(properties);
-            
-            // SERVICE REGISTRY: Gestiona els serveis interns d'Hibernate
-            StandardServiceRegistry serviceRegistry = new StandardServiceRegistryBuilder()
-                .applySettings(configuration.getProperties())
-                .build();
-                
-            // Construïm el SessionFactory (operació costosa, només es fa un cop)
-            factory = configuration.buildSessionFactory(serviceRegistry);
-            
+            factory = buildSessionFactory(settings);
         } catch (Throwable ex) { 
             System.err.println("Error en crear sessionFactory: " + ex);
             throw new ExceptionInInitializerError(ex); 
         }
     }
 
+    // ═══════════════════════════════════════════════════════════════════
+    // MODE EN MEMÒRIA (SQLite sense fitxer)
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Com createSessionFactory(), però amb una BBDD SQLite EN MEMÒRIA nova:
+     * sense E/S de disc, ideal per a jobs curts i tests.
+     *
+     * Manager és estàtic (un sol factory per JVM): cada BBDD en memòria és nova i buida,
+     * però NOMÉS de manera seqüencial. Amb un factory obert es rebutja (IllegalStateException);
+     * cal Manager.close() abans. Per a diverses BBDD aïllades alhora (p.ex. tests en
+     * paral·lel), InMemoryDatabase.open() en dona una de pròpia a cada cridador.
+     */
+    public static void createInMemorySessionFactory() {
+        createInMemorySessionFactory("hibernate.properties", null);
+    }
+
+    /**
+     * @param snapshot fitxer SQLite amb què s'omple la BBDD abans d'arrencar
+     *                 (p.ex. un snapshotTo() anterior), o null per començar buida
+     */
+    public static void createInMemorySessionFactory(String propertiesFileName, Path snapshot) {
+        requireNoInMemory();
+        if (factory != null && factory.isOpen()) {
+            throw new IllegalStateException("Ja hi ha un SessionFactory obert: crida Manager.close() abans");
+        }
+        try {
+            settings = loadProperties(propertiesFileName);
+            settings.setProperty("project.engine", "memory");
+            inMemory = startInMemory(settings, snapshot);
+            factory = buildSessionFactory(settings);
+        } catch (Throwable ex) {
+            System.err.println("Error en crear sessionFactory en memòria: " + ex);
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    // Crea la BBDD en memòria i hi apunta "properties" (també ho fa servir InMemoryDatabase)
+    static InMemorySqlite startInMemory(Properties properties, Path snapshot) throws SQLException {
+        InMemorySqlite database = InMemorySqlite.create();
+        setJdbcUrl(properties, database.getUrl());
+        if (snapshot != null) {
+            try {
+                database.restoreFrom(snapshot);
+            } catch (SQLException e) {
+                database.close();
+                throw e;
+            }
+            // L'esquema ve del snapshot: "create" l'esborraria; "update" només hi afegeix el que falti
+            properties.setProperty(AvailableSettings.HBM2DDL_AUTO, "update");
+        }
+        return database;
+    }
+
+    // SNAPSHOT: Copia la BBDD en memòria a un fitxer SQLite normal
+    public static boolean snapshotTo(Path file) {
+        try {
+            requireInMemory().backupTo(file);
+            return true;
+        } catch (SQLException e) {
+            System.err.println("Error guardant el snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Substitueix les dades en memòria per les del fitxer.
+     * Les caches que depenen de les dades (segon nivell, índex, comptadors) es refan.
+     */
+    public static boolean restoreFrom(Path file) {
+        try {
+            requireInMemory().restoreFrom(file);
+        } catch (SQLException e) {
+            System.err.println("Error restaurant el snapshot: " + e.getMessage());
+            return false;
+        }
+        factory.getCache().evictAllRegions();
+        reloadCartItemIndex();
+        if (aggregateCounters != null) {
+            try (Session session = factory.openSession()) {
+                aggregateCounters.createTable(session);
+                aggregateCounters.rebuild(session);
+            }
+        }
+        return true;
+    }
+
+    public static boolean isInMemory() {
+        return inMemory != null;
+    }
+
+    // L'àncora d'una BBDD en memòria oberta no es pot perdre (ni la BBDD substituir-se) sense close()
+    private static void requireNoInMemory() {
+        if (inMemory != null) {
+            throw new IllegalStateException("Ja hi ha una BBDD en memòria oberta: crida Manager.close() abans");
+        }
+    }
+
+    // Només per als tests del paquet (p.ex. obrir una sessió pròpia en paral·lel a Manager)
+    static SessionFactory getSessionFactory() {
+        return factory;
+    }
+
+    private static InMemorySqlite requireInMemory() {
+        if (inMemory == null) {
+            throw new IllegalStateException("Només disponible en mode en memòria (createInMemorySessionFactory)");
+        }
+        return inMemory;
+    }
+
+    // Carreguem les propietats des del fitxer (URL BBDD, usuari, contrasenya...)
+    static Properties loadProperties(String propertiesFileName) throws IOException {
+        Properties properties = new Properties();
+        try (InputStream input = Manager.class.getClassLoader().getResourceAsStream(propertiesFileName)) {
+            if (input == null) {
+                throw new IOException("No s'ha pogut trobar " + propertiesFileName);
+            }
+            properties.load(input);
+        }
+        return properties;
+    }
+
+    // Construeix un SessionFactory amb les entitats del projecte.
+    // Package-private: també el fa servir ShardedManager (un SessionFactory per shard).
+    static SessionFactory buildSessionFactory(Properties properties) {
+        // CONFIGURATION: Configura Hibernate programàticament
+        Configuration configuration = new Configuration();
+        
+        // Registrem les classes @Entity que Hibernate ha de gestionar
+        configuration.addAnnotatedClass(Cart.class);
+        configuration.addAnnotatedClass(Item.class);
+        configuration.addProperties(properties);
+
+        // MONITORATGE SQL: Pool integrat amb mesura de temps, slow-query log i events JFR.
+        // Només si el fitxer de propietats no en defineix un altre.
+        if (!properties.containsKey(AvailableSettings.CONNECTION_PROVIDER)) {
+            configuration.setProperty(AvailableSettings.CONNECTION_PROVIDER, MonitoredConnectionProvider.class.getName());
+        }
+        
+        // ESQUEMA: hbm2ddl=update/validate consulta les taules mapejades UNA a UNA.
+        // L'estratègia per defecte llegeix TOTES les taules de la BBDD i falla amb les
+        // columnes sense tipus de la taula virtual FTS5 (items_fts), que no és d'Hibernate.
+        if (!properties.containsKey(AvailableSettings.HBM2DDL_JDBC_METADATA_EXTRACTOR_STRATEGY)) {
+            configuration.setProperty(AvailableSettings.HBM2DDL_JDBC_METADATA_EXTRACTOR_STRATEGY, "individually");
+        }
+
+        // BLOQUEIGS (SQLite): espera curta per intent; el que falta el fa runWithRetry
+        String url = jdbcUrl(properties);
+        if (url != null && url.startsWith("jdbc:sqlite:") && !properties.containsKey(SQLITE_BUSY_TIMEOUT)) {
+            configuration.setProperty(SQLITE_BUSY_TIMEOUT, DEFAULT_SQLITE_BUSY_TIMEOUT_MS);
+        }
+
+        // CACHÉ DE SEGON NIVELL: Un CacheManager PROPI per SessionFactory (es tanca amb ell)
+        CacheManager cacheManager = ownCacheManager(properties);
+        if (cacheManager != null) {
+            configuration.getProperties().put(ConfigSettings.CACHE_MANAGER, cacheManager);
+        }
+
+        // SERVICE REGISTRY: Gestiona els serveis interns d'Hibernate
+        StandardServiceRegistry serviceRegistry = new StandardServiceRegistryBuilder()
+            .applySettings(configuration.getProperties())
+            .build();
+            
+        // Construïm el SessionFactory (operació costosa, només es fa un cop)
+        SessionFactory sessionFactory;
+        try {
+            sessionFactory = configuration.buildSessionFactory(serviceRegistry);
+        } catch (RuntimeException e) {
+            if (cacheManager != null) cacheManager.close();
+            throw e;
+        }
+
+        // CERCA DE TEXT: índex FTS5 (SQLite) o FULLTEXT (MySQL) sobre items.name.
+        // Després de construir el factory: hbm2ddl ja ha creat (o recreat) la taula items.
+        ItemSearch.install(sessionFactory);
+        return sessionFactory;
+    }
+
+    // Sense un CacheManager explícit, tots els SessionFactory de la JVM (Manager, arxiu,
+    // shards...) comparteixen el CacheManager per defecte del proveïdor JCache, i
+    // JCacheRegionFactory el TANCA quan es tanca qualsevol d'ells: els altres es queden
+    // amb caches tancades. null si no es fa servir JCache o ja se n'ha configurat un.
+    private static CacheManager ownCacheManager(Properties properties) {
+        if (!ConfigSettings.SIMPLE_FACTORY_NAME.equals(properties.getProperty(AvailableSettings.CACHE_REGION_FACTORY))
+                || !Boolean.parseBoolean(properties.getProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "true"))
+                || properties.containsKey(ConfigSettings.CACHE_MANAGER)
+                || properties.containsKey(ConfigSettings.CONFIG_URI)) {
+            return null;
+        }
+        EhcacheCachingProvider provider = (EhcacheCachingProvider)
+            Caching.getCachingProvider(EhcacheCachingProvider.class.getName());
+        // URI única: el proveïdor guarda un CacheManager per URI
+        return provider.getCacheManager(URI.create("urn:project:cache:" + UUID.randomUUID()),
+            new DefaultConfiguration(provider.getDefaultClassLoader()));
+    }
+
     public static void close() {
+        cartItemIndex = null;
+        aggregateCounters = null;
+        if (changeFeed != null) {
+            changeFeed.close();
+            changeFeed = null;
+        }
+        if (archiveFactory != null) {
+            archiveFactory.close();
+            archiveFactory = null;
+        }
         if (factory != null) factory.close();
+        // L'àncora es tanca l'última: amb ella desapareix la BBDD en memòria
+        if (inMemory != null) {
+            try {
+                inMemory.close();
+            } catch (SQLException e) {
+                System.err.println("Error tancant la BBDD en memòria: " + e.getMessage());
+            }
+            inMemory = null;
+        }
     }
 
     // ═══════════════════════════════════════════════════════════════════
@@ -117,75 +377,12 @@ public class Manager {
     // CRUD - UPDATE (Actualització d'entitats)
     // ═══════════════════════════════════════════════════════════════════
 
-    public static void updateItem(Long itemId, String name) {
-        Transaction tx = null;
-        try (Session session = factory.openSession()) {
-            tx = session.beginTransaction();
-            // GET: Recupera l'entitat per ID. Retorna null si no existeix.
-            Item item = session.get(Item.class, itemId); 
-            if (item != null) {
-                item.setName(name);
-                // MERGE: Sincronitza l'estat de l'objecte amb la BBDD
-                session.merge(item);
-                tx.commit();
-                System.out.println("Item " + itemId + " actualitzat.");
-            }
-        } catch (Exception e) {
-            if (tx != null && tx.isActive()) tx.rollback();
-            e.printStackTrace(); 
-        }
+    public static boolean updateItem(Long itemId, String name) {
+        return runWithRetry("updateItem", session -> new UnitOfWork(session).updateItem(itemId, name));
     }
 
-    public static void updateCart(Long cartId, String type, Set<Item> items) {
-        Transaction tx = null;
-        try (Session session = factory.openSession()) {
-            tx = session.beginTransaction();
-            Cart cart = session.get(Cart.class, cartId);
-            
-            if (cart == null) {
-                System.err.println("Cart no trobat amb id: " + cartId);
-                return;
-            }
-            
-            cart.setType(type);
-            
-            if (items != null) {
-                // PAS 1: Eliminar items que ja no estan a la nova llista
-                // Còpia per evitar ConcurrentModificationException mentre iterem i modifiquem
-                Set<Item> currentItems = new HashSet<>(cart.getItems());
-                for (Item dbItem : currentItems) {
-                    if (!items.contains(dbItem)) {
-                        cart.removeItem(dbItem);
-                    }
-                }
-
-                // PAS 2: Afegir o actualitzar items de la nova llista
-                for (Item itemInput : items) {
-                    if (itemInput.getItemId() != null) {
-                        // FIND: Recupera l'entitat "managed" (gestionada per la sessió)
-                        // Evita errors de "detached entity" quan l'objecte ve de fora la sessió
-                        Item managedItem = session.find(Item.class, itemInput.getItemId());
-                        if (managedItem != null && !cart.getItems().contains(managedItem)) {
-                            cart.addItem(managedItem);
-                        }
-                    } else {
-                        // Item nou sense ID: s'afegeix i es persistirà per CASCADE
-                        cart.addItem(itemInput);
-                    }
-                }
-            } else {
-                // Si items és null, eliminem tots els items del cart
-                new HashSet<>(cart.getItems()).forEach(cart::removeItem);
-            }
-            
-            session.merge(cart);
-            tx.commit();
-            System.out.println("Cart " + cartId + " actualitzat.");
-            
-        } catch (Exception e) {
-            if (tx != null && tx.isActive()) tx.rollback();
-            e.printStackTrace();
-        }
+    public static boolean updateCart(Long cartId, String type, Set<Item> items) {
+        return runWithRetry("updateCart", session -> new UnitOfWork(session).updateCart(cartId, type, items));
     }
 
     // ═══════════════════════════════════════════════════════════════════
@@ -193,59 +390,624 @@ public class Manager {
     // ═══════════════════════════════════════════════════════════════════
         
     public static Cart getCartWithItems(Long cartId) {
-        try (Session session = factory.openSession()) {
-            // JOIN FETCH: Soluciona el problema de LAZY LOADING.
-            // Carrega Cart + Items en UNA SOLA consulta SQL.
-            // Sense això, accedir a getItems() fora de la sessió llançaria
-            // LazyInitializationException.
-            String hql = "SELECT c FROM Cart c LEFT JOIN FETCH c.items WHERE c.cartId = :id";
-            return session.createQuery(hql, Cart.class)
-                          .setParameter("id", cartId)
-                          .uniqueResult();
+        // Cart + Items en UNA SOLA consulta SQL (entity graph "Cart.items").
+        // Sense això, accedir a getItems() fora de la sessió llançaria
+        // LazyInitializationException.
+        return getCart(cartId, FetchPlan.CART_WITH_ITEMS);
+    }
+
+    // FETCH PLAN: El que crida decideix quines relacions venen carregades
+    public static Cart getCart(Long cartId, FetchPlan<Cart> plan) {
+        return findById(plan, cartId);
+    }
+
+    public static Item getItem(Long itemId, FetchPlan<Item> plan) {
+        return findById(plan, itemId);
+    }
+
+    private static <T> T findById(FetchPlan<T> plan, Object id) {
+        try {
+            // Sense arxiu: l'arxiu té IDs propis (només es pot buscar per UUID)
+            return read(session -> {
+                RootGraph<T> graph = plan.toGraph(session);
+                IdentifierLoadAccess<T> access = session.byId(plan.getRoot());
+                // GraphSemantic.FETCH: el graf diu EXACTAMENT què es carrega (la resta, LAZY)
+                if (graph != null) access.with(graph, GraphSemantic.FETCH);
+                return access.load(id);
+            });
         } catch (Exception e) {
+            readErrorCount.increment();
             e.printStackTrace();
             return null;
         }
     }
 
+    // CONSULTES AGREGADES ("extra-lazy"): Responen preguntes sobre la col·lecció
+    // d'items amb una consulta dirigida, sense carregar cap Item a memòria.
+    // Equivalen a getItems().size() i getItems().contains() però amb un COUNT a la BBDD.
+    public static long countItems(Long cartId) {
+        return read(session -> session.createNamedSelectionQuery(Queries.ITEM_COUNT_BY_CART, Long.class)
+            .setParameter("cartId", cartId)
+            .getSingleResult());
+    }
+
+    public static boolean containsItem(Long cartId, Long itemId) {
+        // Només compta la fila concreta (usa la PK d'items), mai la col·lecció sencera
+        return read(session -> session.createNamedSelectionQuery(Queries.ITEM_COUNT_IN_CART, Long.class)
+            .setParameter("itemId", itemId)
+            .setParameter("cartId", cartId)
+            .getSingleResult() > 0);
+    }
+
     // MÈTODE GENÈRIC: Funciona amb qualsevol classe Entity gràcies a <T>
     public static <T> List<T> findAll(Class<T> clazz) {
-        try (Session session = factory.openSession()) {
-            // HQL (Hibernate Query Language): Similar a SQL però usa noms de classes Java
-            return session.createQuery("FROM " + clazz.getName(), clazz).list();
-        }
+        return findAll(FetchPlan.none(clazz));
+    }
+
+    public static <T> List<T> findAll(FetchPlan<T> plan) {
+        return findAll(plan, Function.identity());
+    }
+
+    // Com findAll(plan), però "whileOpen" processa el resultat amb la sessió encara OBERTA:
+    // les entitats segueixen gestionades (amb el seu snapshot si la sessió és read-write)
+    public static <T, R> R findAll(FetchPlan<T> plan, Function<List<T>, R> whileOpen) {
+        return read(session -> {
+            // NAMED QUERY: HQL ja analitzat a l'arrencada ("Cart.findAll", "Item.findAll")
+            SelectionQuery<T> query = session.createNamedSelectionQuery(Queries.findAll(plan.getRoot()), plan.getRoot());
+            RootGraph<T> graph = plan.toGraph(session);
+            if (graph != null) query.setEntityGraph(graph, GraphSemantic.FETCH);
+            // Amb col·leccions al graf, Hibernate 6 ja elimina els pares duplicats del JOIN
+            return whileOpen.apply(query.list());
+        });
     }
 
     public static List<Cart> findAllCartsWithItems() {
-        try (Session session = factory.openSession()) {
-            // DISTINCT: Evita duplicats del Cart pare quan té múltiples Items
-            // (el JOIN multiplica files: 1 Cart amb 3 Items = 3 files)
-            return session.createQuery(
-                "SELECT DISTINCT c FROM Cart c LEFT JOIN FETCH c.items", 
-                Cart.class
-            ).list();
+        return findAll(FetchPlan.CART_WITH_ITEMS);
+    }
+
+    // NATURAL ID: Cerca per UUID (la clau que coneixen els sistemes externs).
+    // La primera cerca resol uuid -> id amb una consulta i ho guarda a la caché
+    // de natural-ids; les següents van directament per clau primària.
+    public static Cart findCartByUuid(String uuid) {
+        return findByUuid(Cart.class, uuid);
+    }
+
+    public static Item findItemByUuid(String uuid) {
+        return findByUuid(Item.class, uuid);
+    }
+
+    public static <T> T findByUuid(Class<T> clazz, String uuid) {
+        return findByUuid(FetchPlan.none(clazz), uuid);
+    }
+
+    public static <T> T findByUuid(FetchPlan<T> plan, String uuid) {
+        return readWithArchiveFallback(session -> {
+            SimpleNaturalIdLoadAccess<T> access = session.bySimpleNaturalId(plan.getRoot());
+            RootGraph<T> graph = plan.toGraph(session);
+            if (graph != null) access.with(graph, GraphSemantic.FETCH);
+            return access.load(uuid);
+        });
+    }
+
+    // BULK: Resol molts UUIDs de cop (en lots, amb IN) en lloc d'una consulta per UUID.
+    // Retorna només les entitats trobades, sense ordre garantit
+    // (Hibernate no suporta la càrrega ordenada per natural-id amb aquest dialecte).
+    // Com findByUuid: els UUIDs que no són a les taules calentes es busquen a l'arxiu.
+    public static <T> List<T> findAllByUuid(Class<T> clazz, Collection<String> uuids) {
+        List<T> found = read(factory, session -> multiLoadByUuid(session, clazz, uuids));
+        SessionFactory archive = archiveFactory;
+        if (archive == null) return found;
+
+        NaturalIdMapping naturalId = factory.unwrap(SessionFactoryImplementor.class)
+            .getMappingMetamodel().getEntityDescriptor(clazz).getNaturalIdMapping();
+        Set<Object> hot = new HashSet<>();
+        for (T entity : found) hot.add(naturalId.extractNaturalIdFromEntity(entity));
+        List<String> missing = uuids.stream().filter(uuid -> !hot.contains(uuid)).distinct().toList();
+        if (missing.isEmpty()) return found;
+
+        List<T> all = new ArrayList<>(found);
+        all.addAll(read(archive, session -> multiLoadByUuid(session, clazz, missing)));
+        return all;
+    }
+
+    private static <T> List<T> multiLoadByUuid(Session session, Class<T> clazz, Collection<String> uuids) {
+        return session.byMultipleNaturalId(clazz)
+            .enableOrderedReturn(false)
+            .multiLoad(new ArrayList<>(uuids));
+    }
+
+    // CERCA DE TEXT: Paraules com a prefix ("poma verm" → "Poma vermella"),
+    // resolta amb l'índex de text de la BBDD; retorna resultats lleugers per rellevància.
+    public static List<ItemSearchHit> searchItems(String query, int limit) {
+        return read(session -> ItemSearch.search(session, query, limit));
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // SESSIONS DE NOMÉS LECTURA
+    // ═══════════════════════════════════════════════════════════════════
+
+    // true: els mètodes de lectura usen sessions read-only (es pot desactivar per comparar)
+    private static volatile boolean readOnlyReads = true;
+    // Es descobreix a la primera lectura: si el driver no admet setReadOnly no es torna a provar
+    private static volatile boolean jdbcReadOnlyUnsupported = false;
+
+    public static void setReadOnlyReads(boolean enabled) {
+        readOnlyReads = enabled;
+    }
+
+    /**
+     * Executa una lectura en una sessió de NOMÉS LECTURA:
+     * - setDefaultReadOnly: Hibernate no guarda la còpia (snapshot) de cada entitat
+     *   per al dirty checking, que gairebé duplica la memòria per fila.
+     * - FlushMode.MANUAL: la sessió no fa mai flush (no hi ha res a escriure).
+     * - Connection.setReadOnly: la BBDD ho sap i pot optimitzar (si el driver ho admet).
+     */
+    private static <R> R read(Function<Session, R> work) {
+        return read(factory, work);
+    }
+
+    private static <R> R read(SessionFactory sessionFactory, Function<Session, R> work) {
+        try (Session session = sessionFactory.openSession()) {
+            if (!readOnlyReads) return work.apply(session);
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            boolean jdbcReadOnly = markConnectionReadOnly(session, true);
+            try {
+                return work.apply(session);
+            } finally {
+                if (jdbcReadOnly) markConnectionReadOnly(session, false);
+            }
         }
-    }    
+    }
+
+    // La connexió torna al pool: cal deixar-la com estava (sense transacció oberta i read-write)
+    private static boolean markConnectionReadOnly(Session session, boolean readOnly) {
+        if (jdbcReadOnlyUnsupported) return false;
+        return session.doReturningWork(conn -> {
+            try {
+                if (!readOnly && !conn.getAutoCommit()) conn.rollback();
+                conn.setReadOnly(readOnly);
+                return true;
+            } catch (SQLException e) {
+                jdbcReadOnlyUnsupported = true;
+                return false;
+            }
+        });
+    }
 
     // ═══════════════════════════════════════════════════════════════════
     // CRUD - DELETE (Eliminació d'entitats)
     // ═══════════════════════════════════════════════════════════════════
 
     // MÈTODE GENÈRIC amb Serializable: Funciona amb Long, Integer, String com a ID
-    public static <T> void delete(Class<T> clazz, Serializable id) {
-        Transaction tx = null;
+    public static <T> boolean delete(Class<T> clazz, Serializable id) {
+        return runWithRetry("delete", session -> new UnitOfWork(session).delete(clazz, id));
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // UNITAT DE TREBALL - Diverses operacions, una sessió i un commit
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Executa un flux de diverses operacions en UNA transacció:
+     *   Manager.inTransaction(uow -> {
+     *       Cart cart = uow.addCart("Cart");
+     *       Item item = uow.addItem("Item");
+     *       uow.updateCart(cart.getCartId(), cart.getType(), Set.of(item));
+     *   });
+     * Si el commit xoca amb un altre escriptor es torna a executar tot el flux
+     * (mateixa política de reintents que la resta d'escriptures).
+     * Qualsevol altra excepció (de "work" o de la BBDD) es PROPAGA després del rollback:
+     * un error de programació o de validació no es confon amb un conflicte.
+     * @return true si s'ha confirmat, false si s'han esgotat els reintents per conflictes
+     */
+    public static boolean inTransaction(Consumer<UnitOfWork> work) {
+        return inTransaction(0, 0, work);
+    }
+
+    /**
+     * @param flushInterval cada quantes escriptures es fa flush (0 = només al commit)
+     * @param clearInterval cada quantes escriptures es buida la sessió (0 = mai)
+     */
+    public static boolean inTransaction(int flushInterval, int clearInterval, Consumer<UnitOfWork> work) {
+        return runWithRetry(factory, "inTransaction", session -> {
+            work.accept(new UnitOfWork(session, flushInterval, clearInterval));
+            return true;
+        }, false, true);
+    }
+
+    // Com inTransaction, però retorna un resultat (null si s'han esgotat els reintents)
+    public static <R> R fromTransaction(Function<UnitOfWork, R> work) {
+        return fromTransaction(0, 0, work);
+    }
+
+    public static <R> R fromTransaction(int flushInterval, int clearInterval, Function<UnitOfWork, R> work) {
+        return runWithRetry(factory, "fromTransaction",
+            session -> work.apply(new UnitOfWork(session, flushInterval, clearInterval)), null, true);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // ARXIU - Carts inactius fora de les taules calentes
+    // ═══════════════════════════════════════════════════════════════════
+
+    private static final int DEFAULT_ARCHIVE_BATCH_SIZE = 500;
+
+    /**
+     * Activa l'arxiu: una segona BBDD amb el mateix esquema.
+     * URL: project.archive.url, o la URL principal amb el sufix "-archive"
+     * (jdbc:sqlite:./data/database.db → jdbc:sqlite:./data/database-archive.db).
+     * Un cop activat, findByUuid i findAllByUuid busquen a l'arxiu si no troba res a les taules calentes.
+     * Per ID no: l'arxiu assigna IDs propis (els calents es poden reutilitzar).
+     * L'esquema de l'arxiu es crea o s'amplia (hbm2ddl=update), mai no s'esborra.
+     */
+    public static synchronized void enableArchive() {
+        if (archiveFactory != null) return;
+        Properties properties = new Properties();
+        properties.putAll(settings);
+        String url = settings.getProperty("project.archive.url", urlWithSuffix(jdbcUrl(settings), "-archive"));
+        setJdbcUrl(properties, url);
+        // L'arxiu és l'ÚNICA còpia dels carts arxivats: mai "create" (esborraria les taules)
+        properties.setProperty(AvailableSettings.HBM2DDL_AUTO, "update");
+        // Regions de caché pròpies: els IDs de l'arxiu no han de barrejar-se amb els calents
+        properties.setProperty(AvailableSettings.CACHE_REGION_PREFIX, "archive");
+        archiveFactory = buildSessionFactory(properties);
+    }
+
+    public static CartArchiver.Result archiveInactiveCarts(Duration inactiveFor) {
+        return archiveInactiveCarts(inactiveFor, DEFAULT_ARCHIVE_BATCH_SIZE);
+    }
+
+    public static CartArchiver.Result archiveInactiveCarts(Duration inactiveFor, int batchSize) {
+        return archiveInactiveSince(Instant.now().minus(inactiveFor), batchSize);
+    }
+
+    static CartArchiver.Result archiveInactiveSince(Instant cutoff, int batchSize) {
+        if (archiveFactory == null) {
+            throw new IllegalStateException("L'arxiu no està activat: crida Manager.enableArchive()");
+        }
+        return new CartArchiver(factory, archiveFactory, batchSize).archiveInactiveSince(cutoff);
+    }
+
+    // ARXIU: Si la fila no és a les taules calentes i l'arxiu està activat, es busca allà
+    private static <T> T readWithArchiveFallback(Function<Session, T> work) {
+        T found = read(factory, work);
+        SessionFactory archive = archiveFactory;
+        if (found == null && archive != null) {
+            found = read(archive, work);
+        }
+        return found;
+    }
+
+    // URL JDBC: jakarta.persistence.jdbc.url o la clau clàssica dels .properties del projecte
+    static String jdbcUrl(Properties properties) {
+        return properties.getProperty(AvailableSettings.JAKARTA_JDBC_URL, properties.getProperty(LEGACY_JDBC_URL));
+    }
+
+    // També la clau clàssica: Configuration carrega hibernate.properties del classpath
+    // pel seu compte i, si no se sobreescriu, la URL del fitxer guanyaria a la nova
+    static void setJdbcUrl(Properties properties, String url) {
+        properties.setProperty(AvailableSettings.JAKARTA_JDBC_URL, url);
+        properties.setProperty(LEGACY_JDBC_URL, url);
+    }
+
+    private static final String LEGACY_JDBC_URL = "hibernate.connection.url";
+
+    // jdbc:sqlite:./data/database.db  →  jdbc:sqlite:./data/database<suffix>.db
+    // jdbc:sqlite:file:mem-1?mode=memory  →  jdbc:sqlite:file:mem-1<suffix>?mode=memory
+    static String urlWithSuffix(String baseUrl, String suffix) {
+        int dot = baseUrl.lastIndexOf(".db");
+        if (dot < 0) dot = baseUrl.indexOf('?');
+        if (dot < 0) return baseUrl + suffix;
+        return baseUrl.substring(0, dot) + suffix + baseUrl.substring(dot);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // ESTADÍSTIQUES DE LA QUERY PLAN CACHE
+    // ═══════════════════════════════════════════════════════════════════
+
+    /** Encerts i fallades de la caché de plans de consulta d'Hibernate. */
+    public record QueryPlanCacheStats(long hits, long misses) {
+        public double hitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0.0 : (double) hits / total;
+        }
+    }
+
+    // Les estadístiques tenen un petit cost: desactivades per defecte
+    // (hibernate.generate_statistics) i es poden activar en calent.
+    public static void setStatisticsEnabled(boolean enabled) {
+        factory.getStatistics().setStatisticsEnabled(enabled);
+    }
+
+    public static QueryPlanCacheStats getQueryPlanCacheStats() {
+        Statistics stats = factory.getStatistics();
+        return new QueryPlanCacheStats(stats.getQueryPlanCacheHitCount(), stats.getQueryPlanCacheMissCount());
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // ÍNDEX EN MEMÒRIA (relació Cart ↔ Item amb arrays primitius)
+    // ═══════════════════════════════════════════════════════════════════
+
+    // Opcional: null fins que es crida enableCartItemIndex()
+    private static volatile CartItemIndex cartItemIndex;
+
+    /**
+     * Activa l'índex en memòria: registra el listener i el carrega des de items.cartId.
+     * A partir d'aquí cada commit que toqui Items o Carts l'actualitza.
+     */
+    public static synchronized CartItemIndex enableCartItemIndex() {
+        if (cartItemIndex == null) {
+            CartItemIndex index = new CartItemIndex();
+            // Primer el listener i després la càrrega: cap commit queda entre mig sense aplicar
+            appendPostCommitListener(new CartItemIndexListener(index));
+            try (Session session = factory.openSession()) {
+                index.load(session);
+            }
+            cartItemIndex = index;
+        }
+        return cartItemIndex;
+    }
+
+    public static CartItemIndex getCartItemIndex() {
+        return cartItemIndex;
+    }
+
+    // RECONCILIACIÓ: torna a llegir items.cartId sencer (p.ex. després de canvis amb SQL directe,
+    // com els de l'arxiu, que no generen events)
+    public static void reloadCartItemIndex() {
+        CartItemIndex index = cartItemIndex;
+        if (index == null) return;
         try (Session session = factory.openSession()) {
-            tx = session.beginTransaction();
-            T obj = session.get(clazz, id);
-            if (obj != null) {
-                // REMOVE: Elimina l'entitat de la BBDD
-                session.remove(obj);
-                tx.commit();
-                System.out.println("Eliminat objecte " + clazz.getSimpleName() + " amb id " + id);
+            index.load(session);
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // FLUX DE CANVIS (change feed per a caches, índexs de cerca...)
+    // ═══════════════════════════════════════════════════════════════════
+
+    private static volatile ChangeFeed changeFeed;
+
+    public static ChangeFeed enableChangeFeed() {
+        return enableChangeFeed(8192, 256);
+    }
+
+    /**
+     * Activa la publicació d'events INSERT/UPDATE/DELETE de Cart i Item després de cada commit.
+     * @param capacity  mida de la cua circular (potència de 2)
+     * @param batchSize màxim d'events per lliurament a cada subscriptor
+     */
+    public static synchronized ChangeFeed enableChangeFeed(int capacity, int batchSize) {
+        if (changeFeed == null) {
+            ChangeFeed feed = new ChangeFeed(capacity, batchSize);
+            appendPostCommitListener(new ChangeEventListener(feed));
+            changeFeed = feed;
+        }
+        return changeFeed;
+    }
+
+    public static ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // AGREGATS (items per cart, carts per tipus, items sense cart)
+    // ═══════════════════════════════════════════════════════════════════
+
+    // Opcional: null fins que es crida enableAggregateCounters()
+    private static volatile AggregateCounters aggregateCounters;
+
+    // GROUP BY a la BBDD: sempre exacte, però el cost creix amb les taules
+    public static CartAggregates computeAggregates() {
+        return read(CartAggregates::compute);
+    }
+
+    /**
+     * Activa els comptadors incrementals (taula aggregate_counters).
+     * A partir d'aquí cada escriptura els actualitza dins la seva transacció
+     * i getAggregates()/countCartsOfType()/countOrphanItems() ja no fan GROUP BY.
+     * Cal activar-los a l'arrencada, abans que hi hagi escriptures concurrents.
+     */
+    public static synchronized void enableAggregateCounters() {
+        if (aggregateCounters != null) return;
+        AggregateCounters counters = new AggregateCounters(factory);
+        try (Session session = factory.openSession()) {
+            // Primer la taula, després el listener i al final la càrrega (com l'índex en memòria)
+            counters.createTable(session);
+            appendListener(new AggregateCounterListener(counters));
+            counters.rebuild(session);
+        }
+        aggregateCounters = counters;
+    }
+
+    public static CartAggregates getAggregates() {
+        AggregateCounters counters = aggregateCounters;
+        return counters == null ? computeAggregates() : read(counters::read);
+    }
+
+    public static long countCartsOfType(String type) {
+        AggregateCounters counters = aggregateCounters;
+        if (counters != null) return read(session -> counters.cartsOfType(session, type));
+        return computeAggregates().cartsOfType(type);
+    }
+
+    public static long countOrphanItems() {
+        AggregateCounters counters = aggregateCounters;
+        if (counters != null) return read(counters::orphanItems);
+        return read(session -> session.createNamedSelectionQuery(Queries.ITEM_COUNT_ORPHANS, Long.class)
+            .getSingleResult());
+    }
+
+    // EVENT LISTENER REGISTRY: Servei d'Hibernate on es registren els listeners d'events
+    private static <L extends PostCommitInsertEventListener & PostCommitUpdateEventListener & PostCommitDeleteEventListener>
+            void appendPostCommitListener(L listener) {
+        EventListenerRegistry registry = factory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_COMMIT_INSERT, listener);
+        registry.appendListeners(EventType.POST_COMMIT_UPDATE, listener);
+        registry.appendListeners(EventType.POST_COMMIT_DELETE, listener);
+    }
+
+    // Listeners DINS la transacció (s'executen durant el flush, abans del commit)
+    private static <L extends PostInsertEventListener & PostUpdateEventListener & PostDeleteEventListener>
+            void appendListener(L listener) {
+        EventListenerRegistry registry = factory.unwrap(SessionFactoryImplementor.class)
+            .getServiceRegistry()
+            .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, listener);
+        registry.appendListeners(EventType.POST_UPDATE, listener);
+        registry.appendListeners(EventType.POST_DELETE, listener);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CONCURRÈNCIA OPTIMISTA - Política de reintents
+    // ═══════════════════════════════════════════════════════════════════
+
+    // Reintents màxims després del primer intent i retard base del BACKOFF exponencial.
+    // Escriptors sobre carts diferents no es bloquegen mai; els que xoquen
+    // sobre la mateixa fila es reintenten poques vegades i després fallen ràpid.
+    static final int DEFAULT_MAX_RETRIES = 3;
+    static final long DEFAULT_RETRY_BASE_DELAY_MS = 10;
+    private static volatile int maxRetries = DEFAULT_MAX_RETRIES;
+    private static volatile long retryBaseDelayMs = DEFAULT_RETRY_BASE_DELAY_MS;
+
+    // ESPERA DE BLOQUEIG per intent a SQLite (busy_timeout). El valor per defecte del
+    // driver (3 s) multiplicat pels reintents bloquejaria un escriptor ~12 s; amb 250 ms
+    // el pitjor cas és (maxRetries + 1) * (250 ms + backoff) ≈ 1,1 s amb la política per defecte.
+    // Configurable amb hibernate.connection.busy_timeout (ms).
+    static final String SQLITE_BUSY_TIMEOUT = AvailableSettings.CONNECTION_PREFIX + ".busy_timeout";
+    private static final String DEFAULT_SQLITE_BUSY_TIMEOUT_MS = "250";
+    private static final LongAdder conflictCount = new LongAdder();
+    // Transaccions desfetes DEFINITIVAMENT per conflicte (reintents esgotats), per causa
+    private static final LongAdder lockFailureCount = new LongAdder();
+    private static final LongAdder staleFailureCount = new LongAdder();
+    // Lectures per ID fallides: getCart/getItem retornen null igual que si no existís
+    private static final LongAdder readErrorCount = new LongAdder();
+
+    public static void setRetryPolicy(int maxRetries, long retryBaseDelayMs) {
+        if (maxRetries < 0 || retryBaseDelayMs < 0) {
+            throw new IllegalArgumentException("La política de reintents no admet valors negatius");
+        }
+        Manager.maxRetries = maxRetries;
+        Manager.retryBaseDelayMs = retryBaseDelayMs;
+    }
+
+    // Nombre total de conflictes de concurrència detectats (útil per mètriques)
+    public static long getConflictCount() {
+        return conflictCount.sum();
+    }
+
+    // Fallades per bloqueig: SQLITE_BUSY, lock timeout o bloqueig pessimista
+    public static long getLockFailureCount() {
+        return lockFailureCount.sum();
+    }
+
+    // Fallades per versió obsoleta (@Version): un altre escriptor ha guanyat
+    public static long getStaleFailureCount() {
+        return staleFailureCount.sum();
+    }
+
+    // Errors a getCart / getItem (el null que han retornat no vol dir "no existeix")
+    public static long getReadErrorCount() {
+        return readErrorCount.sum();
+    }
+
+    /**
+     * Executa "work" en una sessió i transacció pròpies.
+     * Si el COMMIT falla per un conflicte de concurrència es torna a executar
+     * TOT el treball des de zero (rellegint l'estat actual de la BBDD).
+     * @return el resultat de "work", o false si ha fallat definitivament
+     */
+    private static boolean runWithRetry(String operation, Function<Session, Boolean> work) {
+        return runWithRetry(factory, operation, work);
+    }
+
+    static boolean runWithRetry(SessionFactory sessionFactory, String operation, Function<Session, Boolean> work) {
+        return runWithRetry(sessionFactory, operation, work, false, false);
+    }
+
+    /**
+     * Versió genèrica: "failed" és el que es retorna si la transacció es desfà.
+     * @param rethrow true: les excepcions que no són conflictes es propaguen
+     *                (API pública de transaccions); false: es registren i es retorna "failed"
+     */
+    static <R> R runWithRetry(SessionFactory sessionFactory, String operation,
+                              Function<Session, R> work, R failed, boolean rethrow) {
+        for (int attempt = 0; ; attempt++) {
+            try (Session session = sessionFactory.openSession()) {
+                Transaction tx = session.beginTransaction();
+                try {
+                    R result = work.apply(session);
+                    tx.commit();
+                    return result;
+                } catch (Throwable t) {
+                    // ROLLBACK amb la sessió encara oberta (al catch de fora ja estaria tancada).
+                    // Throwable: també un Error (p.ex. OutOfMemoryError) ha de desfer la transacció
+                    try {
+                        if (tx.isActive()) tx.rollback();
+                    } catch (RuntimeException rollbackError) {
+                        t.addSuppressed(rollbackError);
+                    }
+                    throw t;
+                }
+            } catch (Exception e) {
+                if (isConcurrencyConflict(e)) {
+                    conflictCount.increment();
+                    if (attempt < maxRetries) {
+                        backoff(attempt);
+                        continue;
+                    }
+                    if (isLockConflict(e)) lockFailureCount.increment();
+                    else staleFailureCount.increment();
+                    System.err.println("Conflicte de concurrència a " + operation
+                        + " després de " + (attempt + 1) + " intents: " + e.getMessage());
+                    return failed;
+                }
+                if (rethrow && e instanceof RuntimeException runtime) throw runtime;
+                System.err.println("Error a " + operation + ": " + e.getMessage());
+                e.printStackTrace();
+                return failed;
             }
-        } catch (Exception e) {
-            if (tx != null && tx.isActive()) tx.rollback();
-            e.printStackTrace();
+        }
+    }
+
+    // Conflicte = versió obsoleta (@Version) o bloqueig de la BBDD.
+    // A SQLite, dos escriptors sobre el mateix fitxer solen xocar abans amb
+    // SQLITE_BUSY (LockAcquisitionException) que amb la comprovació de versió.
+    private static boolean isConcurrencyConflict(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockException
+                    || t instanceof StaleStateException
+                    || t instanceof LockAcquisitionException
+                    || t instanceof PessimisticLockException
+                    || t instanceof LockTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isLockConflict(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof LockAcquisitionException
+                    || t instanceof PessimisticLockException
+                    || t instanceof LockTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // BACKOFF EXPONENCIAL amb JITTER: espera aleatòria entre 0 i base * 2^intent.
+    // L'aleatorietat evita que els escriptors en conflicte es tornin a trobar alhora.
+    private static void backoff(int attempt) {
+        long maxDelay = retryBaseDelayMs << Math.min(attempt, 10);
+        if (maxDelay <= 0) return;
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(maxDelay + 1));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
         }
     }
 
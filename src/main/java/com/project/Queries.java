@@ -0,0 +1,37 @@
+package com.project;
+
+/**
+ * REGISTRE DE NAMED QUERIES: Noms de totes les consultes que fan servir els managers.
+ *
+ * Les consultes es declaren amb @NamedQuery / @NamedNativeQuery a Cart i Item.
+ * Hibernate les analitza i valida EN CREAR el SessionFactory
+ * (hibernate.query.startup_check), així que:
+ * - Un error de sintaxi o un atribut inexistent fa fallar l'arrencada, no la primera crida.
+ * - En temps d'execució no es torna a analitzar l'HQL; el pla SQL es reutilitza
+ *   des de la "query plan cache".
+ */
+public final class Queries {
+
+    // ─── Cart ───
+    public static final String CART_FIND_ALL = "Cart.findAll";
+    public static final String CART_FIND_ALL_WITH_ITEMS = "Cart.findAllWithItems";
+    public static final String CART_WITH_ITEMS_BY_UUID = "Cart.withItemsByUuid";
+    public static final String CART_INACTIVE_IDS = "Cart.inactiveIds";
+    public static final String CART_WITH_ITEMS_BY_IDS = "Cart.withItemsByIds";
+    public static final String CART_ITEM_COUNTS = "Cart.itemCounts";
+    public static final String CART_COUNT_BY_TYPE = "Cart.countByType";
+
+    // ─── Item ───
+    public static final String ITEM_FIND_ALL = "Item.findAll";
+    public static final String ITEM_COUNT_BY_CART = "Item.countByCart";
+    public static final String ITEM_COUNT_IN_CART = "Item.countInCart";
+    public static final String ITEM_CART_MEMBERSHIP = "Item.cartMembership";
+    public static final String ITEM_COUNT_ORPHANS = "Item.countOrphans";
+
+    private Queries() {}
+
+    // Cada entitat registra el seu "<Entitat>.findAll" (substitueix "FROM " + clazz.getName())
+    public static String findAll(Class<?> clazz) {
+        return clazz.getSimpleName() + ".findAll";
+    }
+}
@@ -0,0 +1,297 @@
+package com.project;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.AvailableSettings;
+
+/**
+ * Classe SHARDED MANAGER: Variant de Manager que reparteix les dades en N fitxers SQLite.
+ *
+ * SQLite només admet UN escriptor per fitxer. Repartint els carts en diversos fitxers
+ * (SHARDS) cada fitxer té el seu propi bloqueig i les escriptures escalen amb N.
+ *
+ * Regles de repartiment:
+ * - Un Cart viu al shard hash(uuid) % N, i els seus Items viuen al mateix shard.
+ * - Un Item nou sense cart viu al shard del seu propi uuid.
+ * - Els IDs numèrics es generen per shard (es repeteixen entre fitxers),
+ *   per això aquesta API identifica carts i items pel seu UUID.
+ */
+public class ShardedManager {
+
+    // Un SessionFactory per shard (cada un apunta al seu fitxer)
+    private static SessionFactory[] shards;
+
+    // Pool per a les consultes SCATTER-GATHER (una tasca per shard en paral·lel)
+    private static ExecutorService scatterPool;
+
+    // ═══════════════════════════════════════════════════════════════════
+    // INICIALITZACIÓ
+    // ═══════════════════════════════════════════════════════════════════
+
+    public static void createSessionFactories(int shardCount) {
+        createSessionFactories("hibernate.properties", shardCount);
+    }
+
+    public static void createSessionFactories(String propertiesFileName, int shardCount) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("Cal almenys 1 shard");
+        }
+        try {
+            Properties base = Manager.loadProperties(propertiesFileName);
+            shards = new SessionFactory[shardCount];
+            for (int i = 0; i < shardCount; i++) {
+                shards[i] = Manager.buildSessionFactory(shardProperties(base, i));
+            }
+            scatterPool = Executors.newFixedThreadPool(shardCount, r -> {
+                Thread t = new Thread(r, "shard-scatter");
+                t.setDaemon(true);
+                return t;
+            });
+        } catch (Throwable ex) {
+            System.err.println("Error en crear els shards: " + ex);
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    public static void close() {
+        if (scatterPool != null) scatterPool.shutdown();
+        if (shards != null) {
+            for (SessionFactory shard : shards) shard.close();
+        }
+    }
+
+    public static int getShardCount() {
+        return shards.length;
+    }
+
+    // Accés directe a un shard (per comprovar on han anat a parar les dades)
+    static SessionFactory getShard(int index) {
+        return shards[index];
+    }
+
+    // Les propietats base amb la URL del shard (amb qualsevol de les dues claus de URL)
+    static Properties shardProperties(Properties base, int shard) {
+        String baseUrl = Manager.jdbcUrl(base);
+        if (baseUrl == null) {
+            throw new IllegalArgumentException("Falta la URL JDBC (" + AvailableSettings.JAKARTA_JDBC_URL + ")");
+        }
+        Properties properties = new Properties();
+        properties.putAll(base);
+        Manager.setJdbcUrl(properties, shardUrl(baseUrl, shard));
+        // Cada shard té les seves regions de caché (els IDs es repeteixen entre shards)
+        properties.setProperty(AvailableSettings.CACHE_REGION_PREFIX, "shard" + shard);
+        return properties;
+    }
+
+    // jdbc:sqlite:./data/database.db  →  jdbc:sqlite:./data/database-shard0.db
+    static String shardUrl(String baseUrl, int shard) {
+        return Manager.urlWithSuffix(baseUrl, "-shard" + shard);
+    }
+
+    // ROUTING: floorMod evita índexs negatius quan hashCode() és negatiu
+    static int shardFor(String uuid) {
+        return Math.floorMod(uuid.hashCode(), shards.length);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CRUD - CREATE
+    // ═══════════════════════════════════════════════════════════════════
+
+    public static Cart addCart(String type) {
+        Cart cart = new Cart(type);
+        return persist(shardFor(cart.getUuid()), cart) ? cart : null;
+    }
+
+    public static Item addItem(String name) {
+        Item item = new Item(name);
+        return persist(shardFor(item.getUuid()), item) ? item : null;
+    }
+
+    // Crea l'Item directament dins del cart, al shard propietari del cart
+    public static Item addItemToCart(String cartUuid, String name) {
+        Item[] created = new Item[1];
+        boolean ok = Manager.runWithRetry(shards[shardFor(cartUuid)], "addItemToCart", session -> {
+            Cart cart = findCart(session, cartUuid);
+            if (cart == null) return false;
+            Item item = new Item(name);
+            cart.addItem(item);
+            session.persist(item);
+            created[0] = item;
+            return true;
+        });
+        return ok ? created[0] : null;
+    }
+
+    private static boolean persist(int shard, Object entity) {
+        Transaction tx = null;
+        try (Session session = shards[shard].openSession()) {
+            tx = session.beginTransaction();
+            session.persist(entity);
+            tx.commit();
+            return true;
+        } catch (Exception e) {
+            if (tx != null && tx.isActive()) tx.rollback();
+            System.err.println("Error creant " + entity.getClass().getSimpleName() + " al shard " + shard + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CRUD - UPDATE
+    // ═══════════════════════════════════════════════════════════════════
+
+    /**
+     * Mateixa semàntica que Manager.updateCart, però identificant per UUID.
+     * Els items que viuen en un altre shard es MOUEN al shard del cart:
+     * primer es crea la còpia al shard destí i, un cop confirmada, s'esborra l'original.
+     * No és atòmic entre fitxers: si falla el segon pas, l'item queda duplicat (mai perdut).
+     */
+    public static boolean updateCart(String cartUuid, String type, Set<Item> items) {
+        int owner = shardFor(cartUuid);
+        Map<Integer, List<String>> movedFrom = new HashMap<>();
+
+        boolean ok = Manager.runWithRetry(shards[owner], "updateCart", session -> {
+            movedFrom.clear();
+            Cart cart = findCart(session, cartUuid);
+            if (cart == null) {
+                System.err.println("Cart no trobat amb uuid: " + cartUuid);
+                return false;
+            }
+            cart.setType(type);
+
+            Set<Item> wanted = (items != null) ? items : Set.of();
+            for (Item dbItem : new ArrayList<>(cart.getItems())) {
+                if (!wanted.contains(dbItem)) cart.removeItem(dbItem);
+            }
+            for (Item input : wanted) {
+                if (cart.getItems().contains(input)) continue;
+                Item local = findItem(session, input.getUuid());
+                if (local == null) {
+                    // No és en aquest shard: el busquem als altres per moure'l
+                    int source = locateItem(input.getUuid(), owner);
+                    if (source >= 0) {
+                        movedFrom.computeIfAbsent(source, k -> new ArrayList<>()).add(input.getUuid());
+                    }
+                    local = new Item(input.getUuid(), input.getName());
+                    session.persist(local);
+                }
+                cart.addItem(local);
+            }
+            return true;
+        });
+
+        if (ok) {
+            movedFrom.forEach((source, uuids) -> Manager.runWithRetry(shards[source], "updateCart(move)", session -> {
+                for (String uuid : uuids) {
+                    Item original = findItem(session, uuid);
+                    if (original != null) session.remove(original);
+                }
+                return true;
+            }));
+        }
+        return ok;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CRUD - READ
+    // ═══════════════════════════════════════════════════════════════════
+
+    public static Cart getCartWithItems(String cartUuid) {
+        try (Session session = shards[shardFor(cartUuid)].openSession()) {
+            return session.createNamedSelectionQuery(Queries.CART_WITH_ITEMS_BY_UUID, Cart.class)
+                .setParameter("uuid", cartUuid)
+                .uniqueResult();
+        }
+    }
+
+    // SCATTER-GATHER: La mateixa consulta a tots els shards en paral·lel i fusionem resultats
+    public static <T> List<T> findAll(Class<T> clazz) {
+        return scatter(session -> session.createNamedSelectionQuery(Queries.findAll(clazz), clazz).list());
+    }
+
+    public static List<Cart> findAllCartsWithItems() {
+        return scatter(session -> session.createNamedSelectionQuery(Queries.CART_FIND_ALL_WITH_ITEMS, Cart.class).list());
+    }
+
+    private static <T> List<T> scatter(Function<Session, List<T>> query) {
+        List<CompletableFuture<List<T>>> futures = new ArrayList<>(shards.length);
+        for (SessionFactory shard : shards) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try (Session session = shard.openSession()) {
+                    return query.apply(session);
+                }
+            }, scatterPool));
+        }
+        List<T> merged = new ArrayList<>();
+        for (CompletableFuture<List<T>> future : futures) {
+            merged.addAll(future.join());
+        }
+        return merged;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CRUD - DELETE
+    // ═══════════════════════════════════════════════════════════════════
+
+    public static boolean deleteCart(String cartUuid) {
+        return Manager.runWithRetry(shards[shardFor(cartUuid)], "deleteCart", session -> {
+            Cart cart = findCart(session, cartUuid);
+            if (cart == null) return false;
+            session.remove(cart);
+            return true;
+        });
+    }
+
+    public static boolean deleteItem(String itemUuid) {
+        int shard = locateItem(itemUuid, -1);
+        if (shard < 0) return false;
+        return Manager.runWithRetry(shards[shard], "deleteItem", session -> {
+            Item item = findItem(session, itemUuid);
+            if (item == null) return false;
+            if (item.getCart() != null) item.getCart().removeItem(item);
+            session.remove(item);
+            return true;
+        });
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // UTILITATS
+    // ═══════════════════════════════════════════════════════════════════
+
+    private static Cart findCart(Session session, String uuid) {
+        return session.bySimpleNaturalId(Cart.class).load(uuid);
+    }
+
+    private static Item findItem(Session session, String uuid) {
+        return session.bySimpleNaturalId(Item.class).load(uuid);
+    }
+
+    // Un item pot viure al shard del seu uuid (sense cart) o al del seu cart:
+    // provem primer el més probable i després la resta. Retorna -1 si no existeix.
+    private static int locateItem(String uuid, int skipShard) {
+        int home = shardFor(uuid);
+        if (home != skipShard && existsItem(home, uuid)) return home;
+        for (int i = 0; i < shards.length; i++) {
+            if (i != home && i != skipShard && existsItem(i, uuid)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean existsItem(int shard, String uuid) {
+        try (Session session = shards[shard].openSession()) {
+            return findItem(session, uuid) != null;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.project;
+
+import java.io.Serializable;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.Session;
+import org.hibernate.graph.GraphSemantic;
+import org.hibernate.graph.RootGraph;
+import org.hibernate.query.SelectionQuery;
+
+/**
+ * UNITAT DE TREBALL: Les operacions CRUD del Manager sobre UNA sola sessió i UNA transacció.
+ *
+ * S'obté amb Manager.inTransaction(uow -> ...) o Manager.fromTransaction(uow -> ...):
+ * - Una sola connexió del pool i un sol COMMIT per a tot el flux.
+ * - El que s'ha creat o llegit abans ja és a la sessió: updateCart no torna a
+ *   carregar els items que addItem acaba de persistir.
+ * - Si alguna cosa falla, es desfà TOT (rollback) i l'excepció arriba al cridador.
+ *
+ * Per a lots llargs, flushInterval i clearInterval limiten la memòria de la sessió:
+ * cada N escriptures s'envien els canvis a la BBDD (flush) i/o es buida la sessió (clear).
+ * Després d'un clear les entitats retornades abans queden "detached".
+ */
+public final class UnitOfWork {
+
+    private final Session session;
+    private final int flushInterval;
+    private final int clearInterval;
+    private int writes;
+
+    // 0 = sense flush/clear intermedis (tot s'envia al commit)
+    UnitOfWork(Session session, int flushInterval, int clearInterval) {
+        if (flushInterval < 0 || clearInterval < 0) {
+            throw new IllegalArgumentException("Els intervals de flush i clear no poden ser negatius");
+        }
+        this.session = session;
+        this.flushInterval = flushInterval;
+        this.clearInterval = clearInterval;
+    }
+
+    UnitOfWork(Session session) {
+        this(session, 0, 0);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CREATE
+    // ═══════════════════════════════════════════════════════════════════
+
+    public Cart addCart(String type) {
+        Cart cart = new Cart(type);
+        session.persist(cart);
+        written();
+        return cart;
+    }
+
+    public Item addItem(String name) {
+        Item item = new Item(name);
+        session.persist(item);
+        written();
+        return item;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // UPDATE
+    // ═══════════════════════════════════════════════════════════════════
+
+    public boolean updateItem(Long itemId, String name) {
+        // GET: Recupera l'entitat per ID. Retorna null si no existeix.
+        Item item = session.get(Item.class, itemId);
+        if (item == null) return false;
+        item.setName(name);
+        // ACTIVITAT: Editar un item també és activitat del seu cart (si no, l'arxivat el
+        // consideraria inactiu). Canvia una columna de carts, així que el cart es versiona.
+        if (item.getCart() != null) item.getCart().touch();
+        // MERGE: Sincronitza l'estat de l'objecte amb la BBDD
+        session.merge(item);
+        System.out.println("Item " + itemId + " actualitzat.");
+        written();
+        return true;
+    }
+
+    public boolean updateCart(Long cartId, String type, Set<Item> items) {
+        Cart cart = session.get(Cart.class, cartId);
+
+        if (cart == null) {
+            System.err.println("Cart no trobat amb id: " + cartId);
+            return false;
+        }
+
+        cart.setType(type);
+        cart.touch();
+
+        if (items != null) {
+            // PAS 1: Eliminar items que ja no estan a la nova llista
+            // Còpia per evitar ConcurrentModificationException mentre iterem i modifiquem
+            Set<Item> currentItems = new HashSet<>(cart.getItems());
+            for (Item dbItem : currentItems) {
+                if (!items.contains(dbItem)) {
+                    cart.removeItem(dbItem);
+                }
+            }
+
+            // PAS 2: Afegir o actualitzar items de la nova llista
+            for (Item itemInput : items) {
+                if (itemInput.getItemId() != null) {
+                    // FIND: Recupera l'entitat "managed" (gestionada per la sessió)
+                    // Evita errors de "detached entity" quan l'objecte ve de fora la sessió.
+                    // Si ja és a la sessió (p.ex. creat amb addItem), no es torna a consultar.
+                    Item managedItem = session.find(Item.class, itemInput.getItemId());
+                    if (managedItem != null && !cart.getItems().contains(managedItem)) {
+                        cart.addItem(managedItem);
+                    }
+                } else {
+                    // Item nou sense ID: s'afegeix i es persistirà per CASCADE
+                    cart.addItem(itemInput);
+                }
+            }
+        } else {
+            // Si items és null, eliminem tots els items del cart
+            new HashSet<>(cart.getItems()).forEach(cart::removeItem);
+        }
+
+        session.merge(cart);
+        System.out.println("Cart " + cartId + " actualitzat.");
+        written();
+        return true;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // DELETE
+    // ═══════════════════════════════════════════════════════════════════
+
+    public <T> boolean delete(Class<T> clazz, Serializable id) {
+        T obj = session.get(clazz, id);
+        if (obj == null) return false;
+        // REMOVE: Elimina l'entitat de la BBDD
+        session.remove(obj);
+        System.out.println("Eliminat objecte " + clazz.getSimpleName() + " amb id " + id);
+        written();
+        return true;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // READ (veuen els canvis encara no confirmats d'aquesta unitat de treball)
+    // ═══════════════════════════════════════════════════════════════════
+
+    public Cart getCart(Long cartId, FetchPlan<Cart> plan) {
+        return find(plan, cartId);
+    }
+
+    public Item getItem(Long itemId, FetchPlan<Item> plan) {
+        return find(plan, itemId);
+    }
+
+    public <T> List<T> findAll(Class<T> clazz) {
+        return findAll(FetchPlan.none(clazz));
+    }
+
+    public <T> List<T> findAll(FetchPlan<T> plan) {
+        SelectionQuery<T> query = session.createNamedSelectionQuery(Queries.findAll(plan.getRoot()), plan.getRoot());
+        RootGraph<T> graph = plan.toGraph(session);
+        if (graph != null) query.setEntityGraph(graph, GraphSemantic.FETCH);
+        return query.list();
+    }
+
+    private <T> T find(FetchPlan<T> plan, Object id) {
+        RootGraph<T> graph = plan.toGraph(session);
+        if (graph == null) return session.find(plan.getRoot(), id);
+        return session.byId(plan.getRoot()).with(graph, GraphSemantic.FETCH).load(id);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CONTROL DE LA SESSIÓ
+    // ═══════════════════════════════════════════════════════════════════
+
+    // FLUSH: Envia els canvis pendents a la BBDD (dins la transacció, encara sense commit)
+    public void flush() {
+        session.flush();
+    }
+
+    // CLEAR: Buida la sessió; les entitats carregades fins ara queden "detached"
+    public void clear() {
+        session.flush();
+        session.clear();
+    }
+
+    /** @return escriptures fetes fins ara en aquesta unitat de treball */
+    public int getWriteCount() {
+        return writes;
+    }
+
+    private void written() {
+        writes++;
+        if (clearInterval > 0 && writes % clearInterval == 0) {
+            clear();
+        } else if (flushInterval > 0 && writes % flushInterval == 0) {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.project.aggregates;
+
+import java.util.Objects;
+
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+
+import com.project.Cart;
+import com.project.Item;
+
+/**
+ * LISTENER EN TRANSACCIÓ (no post-commit): Cada INSERT/UPDATE/DELETE de Cart o Item
+ * aplica el seu delta a aggregate_counters amb la MATEIXA connexió i transacció.
+ * Així els comptadors i les dades es confirmen (o es desfan) junts.
+ */
+public class AggregateCounterListener
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final AggregateCounters counters;
+
+    public AggregateCounterListener(AggregateCounters counters) {
+        this.counters = counters;
+    }
+
+    // S'executa durant el flush, dins la transacció: no cal esperar el commit
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Item item) {
+            add(event.getSession(), bucketOf(item.getCart()), 1);
+        } else if (event.getEntity() instanceof Cart cart) {
+            add(event.getSession(), AggregateCounters.typeKey(cart.getType()), 1);
+            // Delta 0: crea la fila del cart (els carts buits també compten, amb 0 items)
+            add(event.getSession(), AggregateCounters.cartKey(cart.getCartId()), 0);
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getOldState() == null) {
+            System.err.println("Update sense estat anterior: els comptadors poden quedar desfasats (cal rebuild)");
+            return;
+        }
+        if (event.getEntity() instanceof Item) {
+            // OLD STATE vs STATE: l'item ha canviat de cart (o n'ha sortit / hi ha entrat)?
+            int cartIndex = event.getPersister().getPropertyIndex("cart");
+            String before = bucketOf((Cart) event.getOldState()[cartIndex]);
+            String after = bucketOf((Cart) event.getState()[cartIndex]);
+            move(event.getSession(), before, after);
+        } else if (event.getEntity() instanceof Cart) {
+            int typeIndex = event.getPersister().getPropertyIndex("type");
+            move(event.getSession(),
+                AggregateCounters.typeKey((String) event.getOldState()[typeIndex]),
+                AggregateCounters.typeKey((String) event.getState()[typeIndex]));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Item) {
+            int cartIndex = event.getPersister().getPropertyIndex("cart");
+            add(event.getSession(), bucketOf((Cart) event.getDeletedState()[cartIndex]), -1);
+        } else if (event.getEntity() instanceof Cart cart) {
+            int typeIndex = event.getPersister().getPropertyIndex("type");
+            add(event.getSession(), AggregateCounters.typeKey((String) event.getDeletedState()[typeIndex]), -1);
+            // CASCADE: els items del cart ja s'han esborrat abans (i descomptat)
+            EventSource session = event.getSession();
+            String key = AggregateCounters.cartKey(cart.getCartId());
+            session.doWork(conn -> counters.remove(conn, key));
+        }
+    }
+
+    private void move(EventSource session, String from, String to) {
+        if (Objects.equals(from, to)) return;
+        add(session, from, -1);
+        add(session, to, 1);
+    }
+
+    private void add(EventSource session, String key, long delta) {
+        session.doWork(conn -> counters.add(conn, key, delta));
+    }
+
+    // getCartId() sobre un PROXY lazy no l'inicialitza: l'ID ja és al proxy
+    private static String bucketOf(Cart cart) {
+        return (cart == null || cart.getCartId() == null)
+            ? AggregateCounters.ORPHANS
+            : AggregateCounters.cartKey(cart.getCartId());
+    }
+}
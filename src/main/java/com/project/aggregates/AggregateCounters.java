@@ -0,0 +1,196 @@
+package com.project.aggregates;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.community.dialect.SQLiteDialect;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+
+/**
+ * COMPTADORS INCREMENTALS: Els agregats de CartAggregates guardats a la taula
+ * aggregate_counters (una fila per comptador) i mantinguts per AggregateCounterListener
+ * DINS la mateixa transacció que l'escriptura: si es fa rollback, els comptadors també.
+ *
+ * Claus: "cart:<id>" (items del cart), "type:<tipus>" / "type-null" (carts per tipus)
+ * i "orphans" (items sense cart). Llegir un comptador és una cerca per clau primària.
+ *
+ * Atenció: un comptador és una fila "calenta" (tots els escriptors del mateix tipus la
+ * toquen). A SQLite no canvia res (ja hi ha un sol escriptor); a MySQL serialitza
+ * els escriptors que comparteixen tipus de cart.
+ */
+public final class AggregateCounters {
+
+    static final String ORPHANS = "orphans";
+    private static final String TYPE_PREFIX = "type:";
+    private static final String TYPE_NULL = "type-null";
+    private static final String CART_PREFIX = "cart:";
+
+    private final String upsertSql;
+
+    public AggregateCounters(SessionFactory factory) {
+        Dialect dialect = factory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        // UPSERT: crea el comptador si no existeix o hi suma el delta, en una sola sentència
+        if (dialect instanceof SQLiteDialect) {
+            upsertSql = "INSERT INTO aggregate_counters (counterKey, counterValue) VALUES (?, ?) "
+                + "ON CONFLICT(counterKey) DO UPDATE SET counterValue = counterValue + excluded.counterValue";
+        } else if (dialect instanceof MySQLDialect) {
+            upsertSql = "INSERT INTO aggregate_counters (counterKey, counterValue) VALUES (?, ?) "
+                + "ON DUPLICATE KEY UPDATE counterValue = counterValue + VALUES(counterValue)";
+        } else {
+            throw new UnsupportedOperationException("Comptadors incrementals no suportats per " + dialect);
+        }
+    }
+
+    static String cartKey(long cartId) {
+        return CART_PREFIX + cartId;
+    }
+
+    static String typeKey(String type) {
+        return type == null ? TYPE_NULL : TYPE_PREFIX + type;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CREACIÓ I RECONSTRUCCIÓ
+    // ═══════════════════════════════════════════════════════════════════
+
+    // No és una @Entity: la taula la gestionen aquesta classe i el listener
+    public void createTable(Session session) {
+        Transaction tx = session.beginTransaction();
+        try {
+            session.doWork(conn -> {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("CREATE TABLE IF NOT EXISTS aggregate_counters ("
+                        + "counterKey VARCHAR(255) NOT NULL PRIMARY KEY, counterValue BIGINT NOT NULL)");
+                }
+            });
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx.isActive()) tx.rollback();
+            throw e;
+        }
+    }
+
+    /**
+     * Reomple la taula amb els GROUP BY de CartAggregates.compute().
+     * S'ha de fer abans d'acceptar escriptures (en activar-los, a l'arrencada).
+     */
+    public void rebuild(Session session) {
+        Transaction tx = session.beginTransaction();
+        try {
+            CartAggregates current = CartAggregates.compute(session);
+            session.doWork(conn -> {
+                try (Statement st = conn.createStatement()) {
+                    st.execute("DELETE FROM aggregate_counters");
+                }
+                try (PreparedStatement ps = conn.prepareStatement(
+                        "INSERT INTO aggregate_counters (counterKey, counterValue) VALUES (?, ?)")) {
+                    for (Map.Entry<Long, Long> e : current.itemsPerCart().entrySet()) {
+                        addBatch(ps, cartKey(e.getKey()), e.getValue());
+                    }
+                    for (Map.Entry<String, Long> e : current.cartsPerType().entrySet()) {
+                        addBatch(ps, typeKey(e.getKey()), e.getValue());
+                    }
+                    addBatch(ps, ORPHANS, current.orphanItems());
+                    ps.executeBatch();
+                }
+            });
+            tx.commit();
+        } catch (RuntimeException e) {
+            if (tx.isActive()) tx.rollback();
+            throw e;
+        }
+    }
+
+    private static void addBatch(PreparedStatement ps, String key, long value) throws SQLException {
+        ps.setString(1, key);
+        ps.setLong(2, value);
+        ps.addBatch();
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // ACTUALITZACIONS (les fa el listener amb la connexió de la transacció)
+    // ═══════════════════════════════════════════════════════════════════
+
+    void add(Connection conn, String key, long delta) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement(upsertSql)) {
+            ps.setString(1, key);
+            ps.setLong(2, delta);
+            ps.executeUpdate();
+        }
+    }
+
+    void remove(Connection conn, String key) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("DELETE FROM aggregate_counters WHERE counterKey = ?")) {
+            ps.setString(1, key);
+            ps.executeUpdate();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // LECTURES
+    // ═══════════════════════════════════════════════════════════════════
+
+    /** Un sol comptador per clau primària (0 si no existeix). */
+    public long get(Session session, String key) {
+        return session.doReturningWork(conn -> {
+            try (PreparedStatement ps = conn.prepareStatement(
+                    "SELECT counterValue FROM aggregate_counters WHERE counterKey = ?")) {
+                ps.setString(1, key);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getLong(1) : 0L;
+                }
+            }
+        });
+    }
+
+    public long orphanItems(Session session) {
+        return get(session, ORPHANS);
+    }
+
+    public long cartsOfType(Session session, String type) {
+        return get(session, typeKey(type));
+    }
+
+    public long itemsIn(Session session, long cartId) {
+        return get(session, cartKey(cartId));
+    }
+
+    /** Tots els comptadors (una lectura de la taula petita, sense tocar carts ni items). */
+    public CartAggregates read(Session session) {
+        return session.doReturningWork(conn -> {
+            Map<Long, Long> itemsPerCart = new HashMap<>();
+            Map<String, Long> cartsPerType = new HashMap<>();
+            long orphans = 0;
+            try (Statement st = conn.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT counterKey, counterValue FROM aggregate_counters")) {
+                while (rs.next()) {
+                    String key = rs.getString(1);
+                    long value = rs.getLong(2);
+                    if (key.startsWith(CART_PREFIX)) {
+                        itemsPerCart.put(Long.parseLong(key.substring(CART_PREFIX.length())), value);
+                    } else if (ORPHANS.equals(key)) {
+                        orphans = value;
+                    } else if (value == 0) {
+                        // Tipus sense cap cart: el GROUP BY tampoc el retornaria
+                        continue;
+                    } else if (TYPE_NULL.equals(key)) {
+                        cartsPerType.put(null, value);
+                    } else if (key.startsWith(TYPE_PREFIX)) {
+                        cartsPerType.put(key.substring(TYPE_PREFIX.length()), value);
+                    }
+                }
+            }
+            return new CartAggregates(itemsPerCart, cartsPerType, orphans);
+        });
+    }
+}
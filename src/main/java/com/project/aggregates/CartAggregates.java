@@ -0,0 +1,43 @@
+package com.project.aggregates;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hibernate.Session;
+
+import com.project.Queries;
+
+/**
+ * AGREGATS per informes: items per cart, carts per tipus i items sense cart.
+ *
+ * compute() els calcula a la BBDD amb GROUP BY (cap entitat a memòria).
+ * Amb els comptadors incrementals activats (AggregateCounters) es llegeixen
+ * ja calculats de la taula aggregate_counters.
+ *
+ * @param itemsPerCart  cartId → nombre d'items (inclou els carts buits amb 0)
+ * @param cartsPerType  tipus → nombre de carts (clau null per als carts sense tipus)
+ * @param orphanItems   items amb cartId NULL
+ */
+public record CartAggregates(Map<Long, Long> itemsPerCart, Map<String, Long> cartsPerType, long orphanItems) {
+
+    public static CartAggregates compute(Session session) {
+        Map<Long, Long> itemsPerCart = new HashMap<>();
+        for (Object[] row : session.createNamedSelectionQuery(Queries.CART_ITEM_COUNTS, Object[].class).list()) {
+            itemsPerCart.put((Long) row[0], (Long) row[1]);
+        }
+        Map<String, Long> cartsPerType = new HashMap<>();
+        for (Object[] row : session.createNamedSelectionQuery(Queries.CART_COUNT_BY_TYPE, Object[].class).list()) {
+            cartsPerType.put((String) row[0], (Long) row[1]);
+        }
+        long orphans = session.createNamedSelectionQuery(Queries.ITEM_COUNT_ORPHANS, Long.class).getSingleResult();
+        return new CartAggregates(itemsPerCart, cartsPerType, orphans);
+    }
+
+    public long itemsIn(long cartId) {
+        return itemsPerCart.getOrDefault(cartId, 0L);
+    }
+
+    public long cartsOfType(String type) {
+        return cartsPerType.getOrDefault(type, 0L);
+    }
+}
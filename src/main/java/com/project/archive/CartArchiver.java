@@ -0,0 +1,174 @@
+package com.project.archive;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import com.project.Cart;
+import com.project.Item;
+import com.project.Queries;
+
+/**
+ * ARXIVAT: Mou els carts inactius (i els seus items) de les taules "calentes"
+ * a una BBDD d'arxiu amb el mateix esquema (per defecte, un altre fitxer SQLite).
+ *
+ * Les taules calentes queden petites i els seus índexs caben a memòria;
+ * les dades antigues continuen accessibles (Manager hi recorre si no troba res).
+ *
+ * Funciona per LOTS, cada un amb transaccions curtes:
+ * 1. Es llegeixen N IDs de carts inactius (paginació per clau: cartId > últim ID).
+ * 2. Es copien a l'arxiu i es confirma l'arxiu. L'arxiu assigna els seus propis IDs
+ *    i identifica els carts pel UUID: els IDs calents es poden reutilitzar (SQLite
+ *    sense AUTOINCREMENT reaprofita l'ID més alt esborrat; hbm2ddl=create torna a 1).
+ * 3. S'esborren de les taules calentes amb Hibernate (CASCADE als items), així
+ *    els listeners post-commit (índex, change feed) i la caché veuen l'esborrat.
+ * Si el pas 3 falla (p.ex. algú ha modificat el cart: @Version), es desfà la
+ * còpia de l'arxiu i el lot es deixa per la propera execució.
+ */
+public class CartArchiver {
+
+    /** Resultat d'una execució de l'arxivat. */
+    public record Result(int carts, int items, int batches, int failedBatches) {}
+
+    private final SessionFactory hot;
+    private final SessionFactory archive;
+    private final int batchSize;
+
+    public CartArchiver(SessionFactory hot, SessionFactory archive, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("La mida del lot ha de ser almenys 1");
+        }
+        this.hot = hot;
+        this.archive = archive;
+        this.batchSize = batchSize;
+    }
+
+    /** Arxiva tots els carts sense activitat des d'abans de "cutoff". */
+    public Result archiveInactiveSince(Instant cutoff) {
+        int carts = 0, items = 0, batches = 0, failed = 0;
+        long afterId = 0;
+        while (true) {
+            List<Long> ids = nextBatch(cutoff, afterId);
+            if (ids.isEmpty()) break;
+            afterId = ids.get(ids.size() - 1);
+            batches++;
+            int[] moved = moveBatch(ids, cutoff);
+            if (moved == null) {
+                failed++;
+                continue;
+            }
+            carts += moved[0];
+            items += moved[1];
+        }
+        return new Result(carts, items, batches, failed);
+    }
+
+    private List<Long> nextBatch(Instant cutoff, long afterId) {
+        try (Session session = hot.openSession()) {
+            return session.createNamedSelectionQuery(Queries.CART_INACTIVE_IDS, Long.class)
+                .setParameter("cutoff", cutoff)
+                .setParameter("afterId", afterId)
+                .setMaxResults(batchSize)
+                .list();
+        }
+    }
+
+    // @return {carts, items} moguts, o null si el lot s'ha desfet
+    private int[] moveBatch(List<Long> ids, Instant cutoff) {
+        try (Session session = hot.openSession()) {
+            Transaction tx = session.beginTransaction();
+            boolean copied = false;
+            List<String> uuids = List.of();
+            try {
+                List<Cart> batch = session.createNamedSelectionQuery(Queries.CART_WITH_ITEMS_BY_IDS, Cart.class)
+                    .setParameter("ids", ids)
+                    .list();
+                // Un cart pot haver tingut activitat entre la consulta d'IDs i ara
+                batch.removeIf(cart -> !cart.getLastActivity().isBefore(cutoff));
+                uuids = batch.stream().map(Cart::getUuid).toList();
+                int items = copyToArchive(batch);
+                copied = true;
+                // REMOVE amb CASCADE: esborra també els items del cart
+                batch.forEach(session::remove);
+                tx.commit();
+                return new int[] { batch.size(), items };
+            } catch (RuntimeException e) {
+                if (tx.isActive()) tx.rollback();
+                // COMPENSACIÓ: Els carts continuen a les taules calentes; fora la còpia
+                if (copied) deleteFromArchive(uuids);
+                System.err.println("Error arxivant el lot de carts " + ids.get(0) + ".."
+                    + ids.get(ids.size() - 1) + ": " + e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    // Còpia amb SQL natiu. Els IDs calents NO es copien ni s'usen per trobar files a l'arxiu:
+    // un ID reutilitzat esborraria (o xocaria amb) un cart arxivat abans amb el mateix ID.
+    // Primer s'esborren possibles còpies d'un intent anterior (per UUID): el lot es pot tornar a executar.
+    private int copyToArchive(List<Cart> carts) {
+        if (carts.isEmpty()) return 0;
+        List<String> uuids = carts.stream().map(Cart::getUuid).toList();
+        int items = 0;
+        try (Session session = archive.openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                deleteCarts(session, uuids);
+                for (Cart cart : carts) {
+                    session.createNativeMutationQuery(
+                            "INSERT INTO carts (type, uuid, version, lastActivity) "
+                          + "VALUES (:type, :uuid, :version, :lastActivity)")
+                        .setParameter("type", cart.getType())
+                        .setParameter("uuid", cart.getUuid())
+                        .setParameter("version", cart.getVersion())
+                        .setParameter("lastActivity", cart.getLastActivity())
+                        .executeUpdate();
+                    for (Item item : cart.getItems()) {
+                        // cartId = l'ID que l'arxiu acaba d'assignar al cart (trobat pel UUID)
+                        session.createNativeMutationQuery(
+                                "INSERT INTO items (name, uuid, version, cartId) "
+                              + "SELECT :name, :uuid, :version, c.cartId FROM carts c WHERE c.uuid = :cartUuid")
+                            .setParameter("name", item.getName())
+                            .setParameter("uuid", item.getUuid())
+                            .setParameter("version", item.getVersion())
+                            .setParameter("cartUuid", cart.getUuid())
+                            .executeUpdate();
+                        items++;
+                    }
+                }
+                tx.commit();
+                return items;
+            } catch (RuntimeException e) {
+                if (tx.isActive()) tx.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private void deleteFromArchive(List<String> uuids) {
+        if (uuids.isEmpty()) return;
+        try (Session session = archive.openSession()) {
+            Transaction tx = session.beginTransaction();
+            try {
+                deleteCarts(session, uuids);
+                tx.commit();
+            } catch (RuntimeException e) {
+                if (tx.isActive()) tx.rollback();
+                System.err.println("Error desfent la còpia a l'arxiu: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void deleteCarts(Session session, List<String> uuids) {
+        session.createNativeMutationQuery(
+                "DELETE FROM items WHERE cartId IN (SELECT c.cartId FROM carts c WHERE c.uuid IN (:uuids))")
+            .setParameter("uuids", uuids)
+            .executeUpdate();
+        session.createNativeMutationQuery("DELETE FROM carts WHERE uuid IN (:uuids)")
+            .setParameter("uuids", uuids)
+            .executeUpdate();
+    }
+}
@@ -0,0 +1,30 @@
+package com.project.bench;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Totals del GC de la JVM (tots els col·lectors), per restar-los entre dues mostres.
+ * Els col·lectors que no ho informen retornen -1: es compten com a 0.
+ */
+final class GcStats {
+
+    private GcStats() {
+    }
+
+    static long count() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    static long timeMs() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
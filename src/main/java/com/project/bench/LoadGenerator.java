@@ -0,0 +1,463 @@
+package com.project.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.project.Cart;
+import com.project.FetchPlan;
+import com.project.Item;
+import com.project.Manager;
+
+/**
+ * GENERADOR DE CÀRREGA / SOAK TEST: Diversos fils criden Manager concurrentment
+ * amb una barreja configurable de lectures i escriptures de carts i items.
+ *
+ * Operacions:
+ * - Lectura: un cart amb els seus items (CART_WITH_ITEMS) o un item (ITEM_ONLY), 50/50,
+ *   per un ID a l'atzar d'entre els creats, amb Manager.getCart / getItem (el camí real de
+ *   lectura: sessions de només lectura, sense transacció). Si no existeix (forat d'IDs) és
+ *   un "miss"; els errors els compta Manager.getReadErrorCount i no són misses.
+ * - Escriptura (Manager.fromTransaction, que propaga els errors en lloc d'amagar-los):
+ *   un cart nou amb N items en una sola transacció (proporció cartWrites) o el canvi
+ *   de nom d'un item existent (si no existeix, també és un "miss").
+ *
+ * Mesures (només després de l'escalfament):
+ * - Throughput i percentils de latència (p50/p95/p99/max) de lectures i escriptures.
+ * - Errors per causa: bloqueig (SQLITE_BUSY / lock timeout) i versió obsoleta amb els
+ *   reintents esgotats (Manager.getLockFailureCount / getStaleFailureCount), lectures
+ *   fallides (Manager.getReadErrorCount) i la resta d'excepcions (la primera de cada
+ *   tipus s'imprimeix sencera a System.err).
+ * - Conflictes de bloqueig/versió reintentats (Manager.getConflictCount).
+ * - Cada "interval" segons: ops/s, heap usat i recol·leccions del GC.
+ *
+ * Resultats: una fila per execució afegida a "results" (CSV, per comparar execucions)
+ * i la sèrie temporal a loadgen-<data>-timeline.csv, al mateix directori que "results".
+ *
+ * Execució: ./run.sh com.project.bench.LoadGenerator
+ * Paràmetres opcionals clau=valor (valors per defecte entre parèntesis):
+ *   properties (hibernate.properties; hibernate-mysql.properties per a MySQL a localhost:3008,
+ *   inclòs a src/main/resources perquè run.sh només té el classpath principal)
+ *   threads (8), virtual (false: fils de plataforma; true: fils virtuals)
+ *   duration (30 s), warmup (5 s), interval (1 s)
+ *   readRatio (0.8), cartWrites (0.5)
+ *   seedCarts (200), itemsPerCart (5), distribution (uniform | fixed | exponential)
+ *   results (data/loadgen-results.csv), log (false: silencia el System.out de Manager)
+ *
+ * Atenció: la concurrència real la limita hibernate.connection.pool_size, i amb
+ * SQLite només hi ha un escriptor alhora (els altres esperen o reintenten).
+ */
+public class LoadGenerator {
+
+    private static final DateTimeFormatter RUN_ID = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CONFIGURACIÓ
+    // ═══════════════════════════════════════════════════════════════════
+
+    enum Distribution {
+        FIXED, UNIFORM, EXPONENTIAL;
+
+        // Items d'un cart nou amb mitjana "mean"
+        int sample(int mean, ThreadLocalRandom random) {
+            switch (this) {
+                case UNIFORM:
+                    return random.nextInt(2 * mean + 1);
+                case EXPONENTIAL:
+                    // Molts carts petits i pocs de molt grans (cua limitada a 20x la mitjana)
+                    double value = -mean * Math.log(1 - random.nextDouble());
+                    return (int) Math.min(Math.round(value), 20L * mean);
+                default:
+                    return mean;
+            }
+        }
+    }
+
+    private record Config(String properties, int threads, boolean virtualThreads,
+                          int durationS, int warmupS, int intervalS,
+                          double readRatio, double cartWrites,
+                          int seedCarts, int itemsPerCart, Distribution distribution,
+                          Path results, boolean log) {
+
+        static Config parse(String[] args) {
+            Map<String, String> values = new LinkedHashMap<>();
+            values.put("properties", "hibernate.properties");
+            values.put("threads", "8");
+            values.put("virtual", "false");
+            values.put("duration", "30");
+            values.put("warmup", "5");
+            values.put("interval", "1");
+            values.put("readRatio", "0.8");
+            values.put("cartWrites", "0.5");
+            values.put("seedCarts", "200");
+            values.put("itemsPerCart", "5");
+            values.put("distribution", "uniform");
+            values.put("results", "data/loadgen-results.csv");
+            values.put("log", "false");
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (eq < 0 || !values.containsKey(arg.substring(0, eq))) {
+                    throw new IllegalArgumentException("Paràmetre desconegut: " + arg
+                        + " (vàlids: " + String.join(", ", values.keySet()) + ")");
+                }
+                values.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+            Config config = new Config(values.get("properties"),
+                Integer.parseInt(values.get("threads")),
+                Boolean.parseBoolean(values.get("virtual")),
+                Integer.parseInt(values.get("duration")),
+                Integer.parseInt(values.get("warmup")),
+                Math.max(1, Integer.parseInt(values.get("interval"))),
+                Double.parseDouble(values.get("readRatio")),
+                Double.parseDouble(values.get("cartWrites")),
+                Integer.parseInt(values.get("seedCarts")),
+                Integer.parseInt(values.get("itemsPerCart")),
+                Distribution.valueOf(values.get("distribution").toUpperCase(Locale.ROOT)),
+                Path.of(values.get("results")),
+                Boolean.parseBoolean(values.get("log")));
+            if (config.seedCarts < 1) {
+                throw new IllegalArgumentException("seedCarts ha de ser com a mínim 1");
+            }
+            return config;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // ESTAT COMPARTIT
+    // ═══════════════════════════════════════════════════════════════════
+
+    // Rang d'IDs coneguts (IDENTITY: creixents; els forats donen un "miss")
+    private static final class IdRange {
+        private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+        private final AtomicLong max = new AtomicLong(0);
+
+        void seen(Long id) {
+            if (id == null) return;
+            min.accumulateAndGet(id, Math::min);
+            max.accumulateAndGet(id, Math::max);
+        }
+
+        // -1 si encara no n'hi ha cap
+        long pick(ThreadLocalRandom random) {
+            long hi = max.get();
+            long lo = min.get();
+            if (hi == 0 || lo > hi) return -1;
+            return lo + random.nextLong(hi - lo + 1);
+        }
+    }
+
+    private static final IdRange cartIds = new IdRange();
+    private static final IdRange itemIds = new IdRange();
+
+    private static final LongAdder reads = new LongAdder();
+    private static final LongAdder writes = new LongAdder();
+    private static final LongAdder otherErrors = new LongAdder();
+    private static final LongAdder misses = new LongAdder();
+
+    // Tipus d'excepció ja impresos (la resta de repeticions només es compten)
+    private static final Set<Class<?>> reportedErrors = ConcurrentHashMap.newKeySet();
+
+    // L'escalfament no es registra; "stop" atura els fils
+    private static volatile boolean recording;
+    private static volatile boolean stop;
+
+    // ═══════════════════════════════════════════════════════════════════
+    // EXECUCIÓ
+    // ═══════════════════════════════════════════════════════════════════
+
+    public static void main(String[] args) throws Exception {
+        Config config = Config.parse(args);
+        String runId = LocalDateTime.now().format(RUN_ID);
+
+        File dir = new File(System.getProperty("user.dir") + "/data/");
+        if (!dir.exists()) dir.mkdirs();
+
+        PrintStream out = System.out;
+        Manager.createSessionFactory(config.properties);
+        List<Worker> workers = new ArrayList<>();
+        List<String> timeline = new ArrayList<>();
+        ExecutorService pool = null;
+        Sample first;
+        Sample last;
+        try {
+            // SILENCI: els println de Manager per operació sincronitzen tots els fils
+            // a System.out i distorsionarien la mesura. System.err NO: només hi van
+            // els errors, i sense ells no es pot diagnosticar una execució fallida
+            if (!config.log) {
+                System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            }
+
+            out.println("Creant " + config.seedCarts + " carts inicials...");
+            for (int i = 0; i < config.seedCarts; i++) {
+                createCart(config, ThreadLocalRandom.current());
+            }
+
+            pool = config.virtualThreads
+                ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(config.threads);
+            for (int t = 0; t < config.threads; t++) {
+                Worker worker = new Worker(config);
+                workers.add(worker);
+                pool.submit(worker);
+            }
+
+            // ESCALFAMENT: JIT, pool de connexions i caches abans de mesurar
+            Thread.sleep(config.warmupS * 1000L);
+            recording = true;
+            first = Sample.take();
+            Sample previous = first;
+            out.printf("%s | fils: %d%s | lectures: %.0f%% | %d s%n", config.properties, config.threads,
+                config.virtualThreads ? " (virtuals)" : "", config.readRatio * 100, config.durationS);
+            out.println("t (s) | ops/s   | errors | bloquejos | conflictes | heap (MB) | GCs | GC (ms)");
+            timeline.add("elapsedS,ops,opsPerS,reads,writes,errors,lockTimeouts,misses,conflicts,heapUsedMb,gcCount,gcMs");
+
+            long end = System.nanoTime() + config.durationS * 1_000_000_000L;
+            while (System.nanoTime() < end) {
+                long sleepMs = Math.min(config.intervalS * 1000L, (end - System.nanoTime()) / 1_000_000);
+                if (sleepMs > 0) Thread.sleep(sleepMs);
+                Sample current = Sample.take();
+                double seconds = (current.nanos - previous.nanos) / 1e9;
+                long ops = current.ops() - previous.ops();
+                out.printf(Locale.ROOT, "%5.0f | %7.1f | %6d | %9d | %10d | %9d | %3d | %d%n",
+                    (current.nanos - first.nanos) / 1e9, ops / seconds,
+                    current.errors() - previous.errors(), current.lockTimeouts - previous.lockTimeouts,
+                    current.conflicts - previous.conflicts,
+                    current.heapUsedMb, current.gcCount - previous.gcCount, current.gcMs - previous.gcMs);
+                timeline.add(String.format(Locale.ROOT, "%.1f,%d,%.1f,%d,%d,%d,%d,%d,%d,%d,%d,%d",
+                    (current.nanos - first.nanos) / 1e9, ops, ops / seconds,
+                    current.reads - previous.reads, current.writes - previous.writes,
+                    current.errors() - previous.errors(), current.lockTimeouts - previous.lockTimeouts,
+                    current.misses - previous.misses, current.conflicts - previous.conflicts,
+                    current.heapUsedMb, current.gcCount - previous.gcCount, current.gcMs - previous.gcMs));
+                previous = current;
+            }
+            last = previous;
+        } finally {
+            // També si la mesura falla: cap fil no pot seguir treballant amb el Manager tancat
+            stop = true;
+            try {
+                if (pool != null) {
+                    pool.shutdown();
+                    if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                        System.err.println("Alguns fils no han acabat en 1 minut");
+                    }
+                }
+            } finally {
+                System.setOut(out);
+                Manager.close();
+            }
+        }
+
+        report(config, runId, workers, first, last, timeline);
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // OPERACIONS
+    // ═══════════════════════════════════════════════════════════════════
+
+    private static final class Worker implements Runnable {
+        private final Config config;
+        private final LatencyHistogram readLatency = new LatencyHistogram();
+        private final LatencyHistogram writeLatency = new LatencyHistogram();
+
+        Worker(Config config) {
+            this.config = config;
+        }
+
+        @Override
+        public void run() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            while (!stop) {
+                boolean read = random.nextDouble() < config.readRatio;
+                long start = System.nanoTime();
+                // TRUE: fet; FALSE: l'ID no existeix (miss); null: conflicte amb els reintents
+                // esgotats (ja comptat per causa a Manager); excepció: qualsevol altre error
+                Boolean found;
+                RuntimeException error = null;
+                try {
+                    found = read ? read(random) : write(config, random);
+                } catch (RuntimeException e) {
+                    found = null;
+                    error = e;
+                }
+                long micros = (System.nanoTime() - start) / 1_000;
+                if (error != null && reportedErrors.add(error.getClass())) {
+                    System.err.println("Error a " + (read ? "lectura" : "escriptura") + " (" + error.getClass().getName()
+                        + "; les repeticions només es compten):");
+                    error.printStackTrace();
+                }
+                if (!recording) continue;
+                if (read) {
+                    reads.increment();
+                    readLatency.record(micros);
+                } else {
+                    writes.increment();
+                    writeLatency.record(micros);
+                }
+                if (error != null) otherErrors.increment();
+                else if (Boolean.FALSE.equals(found)) misses.increment();
+            }
+        }
+    }
+
+    private static Boolean read(ThreadLocalRandom random) {
+        if (random.nextBoolean()) {
+            long cartId = cartIds.pick(random);
+            if (cartId < 0) return false;
+            return Manager.getCart(cartId, FetchPlan.CART_WITH_ITEMS) != null;
+        }
+        long itemId = itemIds.pick(random);
+        if (itemId < 0) return false;
+        return Manager.getItem(itemId, FetchPlan.ITEM_ONLY) != null;
+    }
+
+    private static Boolean write(Config config, ThreadLocalRandom random) {
+        long itemId = itemIds.pick(random);
+        if (itemId < 0 || random.nextDouble() < config.cartWrites) {
+            return createCart(config, random) != null ? true : null;
+        }
+        String name = "Load " + random.nextInt(1_000_000);
+        return Manager.fromTransaction(uow -> uow.updateItem(itemId, name));
+    }
+
+    // Un cart amb N items en una transacció (els items es creen dins: un reintent comença de zero)
+    private static Cart createCart(Config config, ThreadLocalRandom random) {
+        int itemCount = config.distribution.sample(config.itemsPerCart, random);
+        Cart cart = Manager.fromTransaction(uow -> {
+            Cart c = uow.addCart("Load " + random.nextInt(8));
+            Set<Item> items = new HashSet<>();
+            for (int i = 0; i < itemCount; i++) {
+                items.add(new Item("Load item " + i));
+            }
+            return uow.updateCart(c.getCartId(), c.getType(), items) ? c : null;
+        });
+        if (cart != null) {
+            cartIds.seen(cart.getCartId());
+            // MERGE persisteix CÒPIES dels items nous: els IDs són als de la col·lecció del cart
+            for (Item item : cart.getItems()) {
+                itemIds.seen(item.getItemId());
+            }
+        }
+        return cart;
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // MESURES I RESULTATS
+    // ═══════════════════════════════════════════════════════════════════
+
+    // misses: sense els errors de lectura (getCart/getItem retornen null en tots dos casos)
+    private record Sample(long nanos, long reads, long writes, long lockTimeouts, long staleVersions,
+                          long readErrors, long otherErrors, long misses, long conflicts,
+                          long heapUsedMb, long gcCount, long gcMs) {
+
+        static Sample take() {
+            long readErrors = Manager.getReadErrorCount();
+            return new Sample(System.nanoTime(), LoadGenerator.reads.sum(), LoadGenerator.writes.sum(),
+                Manager.getLockFailureCount(), Manager.getStaleFailureCount(), readErrors,
+                LoadGenerator.otherErrors.sum(), LoadGenerator.misses.sum() - readErrors, Manager.getConflictCount(),
+                ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / (1024 * 1024),
+                GcStats.count(), GcStats.timeMs());
+        }
+
+        long ops() {
+            return reads + writes;
+        }
+
+        long errors() {
+            return lockTimeouts + staleVersions + readErrors + otherErrors;
+        }
+    }
+
+    private static void report(Config config, String runId, List<Worker> workers,
+                               Sample first, Sample last, List<String> timeline) throws IOException {
+        LatencyHistogram readLatency = new LatencyHistogram();
+        LatencyHistogram writeLatency = new LatencyHistogram();
+        for (Worker worker : workers) {
+            readLatency.add(worker.readLatency);
+            writeLatency.add(worker.writeLatency);
+        }
+        double seconds = (last.nanos - first.nanos) / 1e9;
+        long ops = last.ops() - first.ops();
+        long writeCount = last.writes - first.writes;
+        long errorCount = last.errors() - first.errors();
+        long lockTimeouts = last.lockTimeouts - first.lockTimeouts;
+        long staleVersions = last.staleVersions - first.staleVersions;
+        long readErrors = last.readErrors - first.readErrors;
+        long otherErrors = last.otherErrors - first.otherErrors;
+        long conflicts = last.conflicts - first.conflicts;
+        long maxHeapMb = 0;
+        for (String row : timeline.subList(1, timeline.size())) {
+            maxHeapMb = Math.max(maxHeapMb, Long.parseLong(row.split(",")[9]));
+        }
+
+        System.out.println();
+        System.out.printf(Locale.ROOT, "Ops: %d en %.1f s → %.1f ops/s%n", ops, seconds, ops / seconds);
+        System.out.println("latència (µs) |   p50 |   p95 |   p99 |    max | ops");
+        printLatency("lectures     ", readLatency);
+        printLatency("escriptures  ", writeLatency);
+        System.out.printf(Locale.ROOT,
+            "Errors: %d (%.2f%% de les ops): bloqueig %d | versió obsoleta %d | lectura %d | altres %d%n",
+            errorCount, ops == 0 ? 0 : 100.0 * errorCount / ops, lockTimeouts, staleVersions, readErrors, otherErrors);
+        System.out.println("Misses (ID inexistent): " + (last.misses - first.misses));
+        System.out.printf(Locale.ROOT, "Conflictes reintentats: %d (%.2f per 100 escriptures)%n",
+            conflicts, writeCount == 0 ? 0 : 100.0 * conflicts / writeCount);
+        System.out.printf("Heap màx. mostrejat: %d MB | GCs: %d (%d ms)%n",
+            maxHeapMb, last.gcCount - first.gcCount, last.gcMs - first.gcMs);
+
+        // RESULTATS: una fila per execució (capçalera si el fitxer és nou)
+        Path results = config.results;
+        if (results.getParent() != null) Files.createDirectories(results.getParent());
+        List<String> lines = new ArrayList<>();
+        if (!Files.exists(results)) {
+            lines.add("runId,properties,threads,virtual,readRatio,cartWrites,seedCarts,itemsPerCart,distribution,"
+                + "durationS,ops,opsPerS,readP50Us,readP95Us,readP99Us,readMaxUs,"
+                + "writeP50Us,writeP95Us,writeP99Us,writeMaxUs,errors,errorRate,lockTimeouts,staleVersions,"
+                + "readErrors,otherErrors,misses,conflicts,maxHeapMb,gcCount,gcMs");
+        }
+        lines.add(String.format(Locale.ROOT,
+            "%s,%s,%d,%b,%.2f,%.2f,%d,%d,%s,%.1f,%d,%.1f,%s,%s,%d,%.5f,%d,%d,%d,%d,%d,%d,%d,%d,%d",
+            runId, config.properties, config.threads, config.virtualThreads, config.readRatio, config.cartWrites,
+            config.seedCarts, config.itemsPerCart, config.distribution.name().toLowerCase(Locale.ROOT),
+            seconds, ops, ops / seconds, percentiles(readLatency), percentiles(writeLatency),
+            errorCount, ops == 0 ? 0 : (double) errorCount / ops, lockTimeouts, staleVersions, readErrors, otherErrors,
+            last.misses - first.misses, conflicts, maxHeapMb, last.gcCount - first.gcCount, last.gcMs - first.gcMs));
+        Files.write(results, lines, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+
+        // La sèrie temporal va al costat de "results" (results=/tmp/x.csv → /tmp/loadgen-<data>-timeline.csv)
+        Path timelineFile = results.resolveSibling("loadgen-" + runId + "-timeline.csv");
+        Files.write(timelineFile, timeline, StandardCharsets.UTF_8);
+        System.out.println("Resultats: " + results + " | sèrie temporal: " + timelineFile);
+    }
+
+    private static void printLatency(String label, LatencyHistogram histogram) {
+        System.out.printf("%s | %5d | %5d | %5d | %6d | %d%n", label, histogram.percentile(50),
+            histogram.percentile(95), histogram.percentile(99), histogram.max(), histogram.count());
+    }
+
+    private static String percentiles(LatencyHistogram histogram) {
+        return histogram.percentile(50) + "," + histogram.percentile(95) + ","
+            + histogram.percentile(99) + "," + histogram.max();
+    }
+}
@@ -0,0 +1,127 @@
+package com.project.bench;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.project.Cart;
+import com.project.FetchPlan;
+import com.project.Item;
+import com.project.Manager;
+
+/**
+ * BENCHMARK: Cost en memòria d'una lectura gran amb sessions normals vs de només lectura.
+ *
+ * Es carreguen tots els carts amb els seus items (CART_WITH_ITEMS).
+ * En una sessió normal Hibernate guarda una còpia de l'estat de cada entitat
+ * per al dirty checking; en una de només lectura, no. Aquesta còpia viu mentre
+ * la sessió és oberta, així que es mesuren dues coses:
+ * - Heap RETINGUT: heap viu després de GC amb el resultat carregat i la sessió encara
+ *   oberta, menys el de referència (abans de llegir). Aquí es veu l'estalvi dels snapshots.
+ * - Bytes ASSIGNATS per iteració (findAllCartsWithItems) i recol·leccions del GC.
+ *
+ * Execució: ./run.sh com.project.bench.ReadOnlyBenchmark
+ * Paràmetres opcionals: <carts> <items per cart> <iteracions>
+ */
+public class ReadOnlyBenchmark {
+
+    public static void main(String[] args) {
+        int carts = args.length > 0 ? Integer.parseInt(args[0]) : 100;
+        int itemsPerCart = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        File dir = new File(System.getProperty("user.dir") + "/data/");
+        if (!dir.exists()) dir.mkdirs();
+
+        Manager.createSessionFactory();
+        try {
+            populate(carts, itemsPerCart);
+            System.out.println("Carts: " + carts + ", items per cart: " + itemsPerCart + ", iteracions: " + iterations);
+            System.out.println("mode       | retingut (KB) | KB/iteració | GCs | GC (ms) | temps (ms)");
+            long[] retained = new long[2];
+            for (boolean readOnly : new boolean[] { false, true, false, true }) {
+                Manager.setReadOnlyReads(readOnly);
+                // ESCALFAMENT: JIT i connexions del pool abans de mesurar
+                for (int i = 0; i < 5; i++) Manager.findAllCartsWithItems();
+                // L'última ronda de cada mode és la que compta (la primera també escalfa)
+                retained[readOnly ? 1 : 0] = measure(readOnly ? "read-only " : "read-write", iterations);
+            }
+            long saved = retained[0] - retained[1];
+            System.out.printf("Estalvi de heap retingut amb read-only: %d KB (%.0f%%)%n", saved / 1024,
+                retained[0] <= 0 ? 0.0 : 100.0 * saved / retained[0]);
+        } finally {
+            Manager.setReadOnlyReads(true);
+            Manager.close();
+        }
+    }
+
+    private static void populate(int carts, int itemsPerCart) {
+        for (int c = 0; c < carts; c++) {
+            Cart cart = Manager.addCart("Bench " + c);
+            if (cart == null) continue;
+            Set<Item> items = new HashSet<>();
+            for (int i = 0; i < itemsPerCart; i++) {
+                items.add(new Item("Item " + c + "-" + i));
+            }
+            Manager.updateCart(cart.getCartId(), cart.getType(), items);
+        }
+    }
+
+    // @return bytes de heap retinguts amb la sessió oberta
+    private static long measure(String mode, int iterations) {
+        long gcCountBefore = GcStats.count();
+        long gcTimeBefore = GcStats.timeMs();
+        long bytesBefore = allocatedBytes();
+        long start = System.nanoTime();
+        int rows = 0;
+        for (int i = 0; i < iterations; i++) {
+            List<Cart> result = Manager.findAllCartsWithItems();
+            rows += result.size();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        long bytesPerIteration = (allocatedBytes() - bytesBefore) / iterations;
+        long gcs = GcStats.count() - gcCountBefore;
+        long gcMs = GcStats.timeMs() - gcTimeBefore;
+        if (rows == 0) System.err.println("Cap cart carregat: revisa la configuració");
+
+        // MEDIANA de 5 mostres: el heap "viu" després de System.gc() té soroll de desenes de KB
+        long[] samples = new long[5];
+        for (int i = 0; i < samples.length; i++) samples[i] = retainedWhileOpen();
+        Arrays.sort(samples);
+        long retained = samples[samples.length / 2];
+
+        System.out.printf("%s | %13d | %11d | %3d | %7d | %d%n", mode, retained / 1024, bytesPerIteration / 1024,
+            gcs, gcMs, elapsedMs);
+        return retained;
+    }
+
+    // Heap viu amb tots els carts i items carregats i la sessió OBERTA, menys el d'abans de llegir
+    private static long retainedWhileOpen() {
+        long baseline = usedHeapAfterGc();
+        return Manager.findAll(FetchPlan.CART_WITH_ITEMS, result -> usedHeapAfterGc() - baseline);
+    }
+
+    // Heap viu: es força el GC fins que l'ocupació s'estabilitza
+    private static long usedHeapAfterGc() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            long now = memory.getHeapMemoryUsage().getUsed();
+            if (now >= used) break;
+            used = now;
+        }
+        return used;
+    }
+
+    // Bytes assignats pel fil actual (extensió HotSpot del ThreadMXBean)
+    private static long allocatedBytes() {
+        com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        return threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+}
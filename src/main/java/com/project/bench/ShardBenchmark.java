@@ -0,0 +1,76 @@
+package com.project.bench;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.project.Cart;
+import com.project.ShardedManager;
+
+/**
+ * BENCHMARK: Throughput d'escriptura de ShardedManager segons el nombre de shards.
+ *
+ * Cada escriptura és un cart nou amb 2 items (3 transaccions al shard del cart).
+ * Només compten les escriptures on les 3 transaccions han anat bé; la resta es
+ * mostren a part com a fallades.
+ * Amb 1 shard tots els fils competeixen pel bloqueig d'un sol fitxer SQLite;
+ * amb N shards cada fitxer té el seu propi escriptor.
+ *
+ * Execució: ./run.sh com.project.bench.ShardBenchmark
+ * Paràmetres opcionals: <fils> <carts per fil> <llista de shards separada per comes>
+ */
+public class ShardBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int cartsPerThread = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        String[] shardCounts = (args.length > 2 ? args[2] : "1,2,4,8").split(",");
+
+        File dir = new File(System.getProperty("user.dir") + "/data/");
+        if (!dir.exists()) dir.mkdirs();
+
+        System.out.println("Fils: " + threads + ", carts per fil: " + cartsPerThread);
+        System.out.println("shards | carts/s | fallades | temps (ms)");
+        for (String value : shardCounts) {
+            int shardCount = Integer.parseInt(value.trim());
+            ShardedManager.createSessionFactories(shardCount);
+            try {
+                // ESCALFAMENT: JIT i connexions del pool abans de mesurar
+                runWrites(threads, 5);
+                long start = System.nanoTime();
+                Result result = runWrites(threads, cartsPerThread);
+                long elapsedNs = System.nanoTime() - start;
+                double perSecond = result.written() / (elapsedNs / 1e9);
+                System.out.printf("%6d | %7.1f | %8d | %d%n", shardCount, perSecond, result.failed(),
+                    elapsedNs / 1_000_000);
+            } finally {
+                ShardedManager.close();
+            }
+        }
+    }
+
+    private record Result(int written, int failed) {}
+
+    private static Result runWrites(int threads, int cartsPerThread) throws InterruptedException {
+        AtomicInteger written = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            pool.submit(() -> {
+                for (int i = 0; i < cartsPerThread; i++) {
+                    Cart cart = ShardedManager.addCart("Bench " + thread + "-" + i);
+                    boolean ok = cart != null
+                        && ShardedManager.addItemToCart(cart.getUuid(), "Item A " + i) != null
+                        && ShardedManager.addItemToCart(cart.getUuid(), "Item B " + i) != null;
+                    (ok ? written : failed).incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        pool.awaitTermination(1, TimeUnit.HOURS);
+        return new Result(written.get(), failed.get());
+    }
+}
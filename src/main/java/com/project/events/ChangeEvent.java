@@ -0,0 +1,39 @@
+package com.project.events;
+
+import java.util.Objects;
+
+/**
+ * Canvi confirmat (post-commit) sobre un Cart o un Item.
+ *
+ * Per als Items també viatja la pertinença al cart: un UPDATE amb
+ * previousCartId != cartId és un item que updateCart ha afegit, tret o mogut.
+ *
+ * ORDRE: els events d'un mateix commit arriben en ordre, però els de dos commits
+ * concurrents es poden publicar en ordre invers (cada commit publica des del seu fil).
+ * Per a una mateixa entitat, "version" creix en ordre de commit: un subscriptor que
+ * mantingui estat ha d'ignorar els events amb una versió ≤ l'última que ha aplicat.
+ *
+ * @param kind           INSERT, UPDATE o DELETE
+ * @param entity         "Cart" o "Item"
+ * @param id             cartId o itemId
+ * @param uuid           natural-id de l'entitat
+ * @param cartId         (només Items) cart actual, null si no en té
+ * @param previousCartId (només Items, UPDATE) cart abans del canvi, null si no en tenia
+ * @param version        @Version de l'entitat confirmada (en un DELETE, l'última que tenia)
+ */
+public record ChangeEvent(Kind kind, String entity, Long id, String uuid, Long cartId, Long previousCartId,
+                          Long version) {
+
+    public enum Kind { INSERT, UPDATE, DELETE }
+
+    /** true si aquest event canvia a quin cart pertany un Item */
+    public boolean isMembershipChange() {
+        return "Item".equals(entity) && kind != Kind.DELETE
+            && (kind == Kind.INSERT ? cartId != null : !Objects.equals(cartId, previousCartId));
+    }
+
+    /** true si aquest event és posterior a "applied" (la mateixa entitat, versió més nova) */
+    public boolean isNewerThan(ChangeEvent applied) {
+        return applied == null || version == null || applied.version == null || version > applied.version;
+    }
+}
@@ -0,0 +1,78 @@
+package com.project.events;
+
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+import com.project.Cart;
+import com.project.Item;
+import com.project.events.ChangeEvent.Kind;
+
+/**
+ * LISTENER POST-COMMIT: Tradueix els events d'Hibernate de Cart i Item a
+ * ChangeEvents i els publica al ChangeFeed. Només veu canvis confirmats.
+ * S'executa al fil de cada commit: entre commits concurrents l'ordre el dona la versió.
+ */
+public class ChangeEventListener
+        implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final ChangeFeed feed;
+
+    public ChangeEventListener(ChangeFeed feed) {
+        this.feed = feed;
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return type == Item.class || type == Cart.class;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publish(Kind.INSERT, event.getEntity(), null);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        Long previousCartId = null;
+        if (event.getEntity() instanceof Item && event.getOldState() != null) {
+            // OLD STATE: Foto de l'entitat quan es va carregar; d'aquí surt el cart anterior
+            int cartIndex = event.getPersister().getPropertyIndex("cart");
+            previousCartId = cartIdOf((Cart) event.getOldState()[cartIndex]);
+        }
+        publish(Kind.UPDATE, event.getEntity(), previousCartId);
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publish(Kind.DELETE, event.getEntity(), null);
+    }
+
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+
+    private void publish(Kind kind, Object entity, Long previousCartId) {
+        if (entity instanceof Item item) {
+            feed.publish(new ChangeEvent(kind, "Item", item.getItemId(), item.getUuid(),
+                cartIdOf(item.getCart()), previousCartId, item.getVersion()));
+        } else if (entity instanceof Cart cart) {
+            feed.publish(new ChangeEvent(kind, "Cart", cart.getCartId(), cart.getUuid(), null, null,
+                cart.getVersion()));
+        }
+    }
+
+    private static Long cartIdOf(Cart cart) {
+        return cart == null ? null : cart.getCartId();
+    }
+}
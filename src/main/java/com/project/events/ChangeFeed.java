@@ -0,0 +1,104 @@
+package com.project.events;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * FLUX DE CANVIS en procés: Els commits hi publiquen ChangeEvents i un fil
+ * "dispatcher" els entrega en LOTS als subscriptors (caches, índexs de cerca...).
+ *
+ * - Publicar és lock-free (RingBuffer) i no bloqueja mai el fil que fa el commit.
+ * - Si els subscriptors van massa lents i la cua s'omple, els events nous es
+ *   descarten i es compten a getDroppedCount() (el subscriptor pot tornar a sincronitzar).
+ * - Cada subscriptor rep els events en ordre de PUBLICACIÓ, que entre commits concurrents
+ *   pot no ser el de commit: l'ordre per entitat el dona ChangeEvent.version (isNewerThan).
+ */
+public class ChangeFeed implements AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final RingBuffer<ChangeEvent> buffer;
+    private final int batchSize;
+    private final List<Consumer<List<ChangeEvent>>> subscribers = new CopyOnWriteArrayList<>();
+    private final LongAdder published = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity  mida de la cua (potència de 2)
+     * @param batchSize màxim d'events per lliurament a cada subscriptor (≥ 1)
+     */
+    public ChangeFeed(int capacity, int batchSize) {
+        // 0 no entregaria mai res (i la cua s'ompliria); negatiu mataria el dispatcher
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("La mida de lot ha de ser com a mínim 1: " + batchSize);
+        }
+        this.buffer = new RingBuffer<>(capacity);
+        this.batchSize = batchSize;
+        this.dispatcher = new Thread(this::dispatchLoop, "change-feed-dispatcher");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    public void subscribe(Consumer<List<ChangeEvent>> subscriber) {
+        subscribers.add(subscriber);
+    }
+
+    public void unsubscribe(Consumer<List<ChangeEvent>> subscriber) {
+        subscribers.remove(subscriber);
+    }
+
+    /** @return false si la cua era plena i l'event s'ha descartat */
+    public boolean publish(ChangeEvent event) {
+        if (buffer.offer(event)) {
+            published.increment();
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+
+    public long getPublishedCount() { return published.sum(); }
+    public long getDroppedCount() { return dropped.sum(); }
+
+    // Atura el dispatcher després d'entregar el que quedi a la cua
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(dispatcher);
+        try {
+            dispatcher.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispatchLoop() {
+        List<ChangeEvent> batch = new ArrayList<>(batchSize);
+        while (true) {
+            batch.clear();
+            int drained = buffer.drainTo(batch, batchSize);
+            if (drained == 0) {
+                if (!running) return;
+                // Cua buida: esperem una mica en lloc de consumir CPU fent voltes
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            // Cada subscriptor rep una vista immutable del lot
+            List<ChangeEvent> delivery = List.copyOf(batch);
+            for (Consumer<List<ChangeEvent>> subscriber : subscribers) {
+                try {
+                    subscriber.accept(delivery);
+                } catch (RuntimeException e) {
+                    System.err.println("Error en un subscriptor del ChangeFeed: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
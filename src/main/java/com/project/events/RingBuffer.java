@@ -0,0 +1,69 @@
+package com.project.events;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * CUA CIRCULAR ACOTADA i LOCK-FREE (molts productors, un consumidor).
+ *
+ * Cada posició té un número de seqüència que diu si està lliure o plena
+ * (algorisme de Dmitry Vyukov). Els productors es reserven una posició amb
+ * un CAS sobre "tail"; no hi ha cap lock, així que un commit mai espera un altre.
+ * Si la cua és plena, offer() retorna false en lloc de bloquejar.
+ */
+final class RingBuffer<E> {
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head; // només el llegeix/escriu el consumidor
+
+    RingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("La capacitat ha de ser potència de 2: " + capacity);
+        }
+        mask = capacity - 1;
+        elements = new AtomicReferenceArray<>(capacity);
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+    }
+
+    boolean offer(E element) {
+        long pos = tail.get();
+        while (true) {
+            int slot = (int) pos & mask;
+            long diff = sequences.getAcquire(slot) - pos;
+            if (diff == 0) {
+                // Posició lliure per a aquesta volta: intentem reservar-la
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    elements.setPlain(slot, element);
+                    sequences.setRelease(slot, pos + 1);
+                    return true;
+                }
+                pos = tail.get();
+            } else if (diff < 0) {
+                return false; // plena: el consumidor encara no ha buidat aquesta posició
+            } else {
+                pos = tail.get(); // un altre productor ens ha passat davant
+            }
+        }
+    }
+
+    /** Mou fins a "max" elements a "out". Només l'ha de cridar UN fil consumidor. */
+    int drainTo(List<E> out, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int slot = (int) head & mask;
+            if (sequences.getAcquire(slot) != head + 1) break; // encara buida
+            out.add(elements.getPlain(slot));
+            elements.setPlain(slot, null);
+            sequences.setRelease(slot, head + mask + 1);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,182 @@
+package com.project.index;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+import com.project.Queries;
+
+/**
+ * ÍNDEX EN MEMÒRIA de la relació Cart ↔ Item, construït a partir de la columna items.cartId.
+ *
+ * Respon "a quin cart és l'item X?" i "quins items té el cart Y?" sense passar per
+ * Hibernate ni crear entitats: només arrays de long (veure LongLongHashMap i LongListHashMap).
+ * Cost aproximat: ~30 bytes per relació, en lloc de centenars amb entitats i HashSet.
+ *
+ * Es manté al dia amb CartItemIndexListener (events post-commit de persist/merge/remove).
+ * Lectures concurrents amb un ReadWriteLock: moltes lectures alhora, una escriptura.
+ *
+ * ORDRE: els callbacks post-commit s'executen al fil de cada commit, ja sense cap bloqueig
+ * de la BBDD, i dos commits sobre el mateix item poden arribar a l'índex en ordre invers.
+ * Per això cada canvi porta la @Version de l'item (creix en ordre de commit) i l'índex
+ * descarta els que són més antics que l'últim aplicat. Els canvis fets amb SQL directe
+ * (p.ex. l'arxiu) no generen events: load() torna a sincronitzar l'índex amb la BBDD.
+ */
+public final class CartItemIndex {
+
+    /** Valor que retorna cartOf() quan l'item no té cart (o no existeix). */
+    public static final long NO_CART = 0L;
+
+    private final LongLongHashMap itemToCart = new LongLongHashMap(1024);
+    private final LongListHashMap cartToItems = new LongListHashMap(256);
+    // Última versió aplicada per item (també dels esborrats: un update endarrerit no el reviu)
+    private final LongLongHashMap itemVersions = new LongLongHashMap(1024);
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CÀRREGA INICIAL
+    // ═══════════════════════════════════════════════════════════════════
+
+    // SCROLL: Recorre la taula fila a fila sense carregar-la sencera a memòria
+    public void load(Session session) {
+        lock.writeLock().lock();
+        try (ScrollableResults<Object[]> rows = session
+                .createNamedQuery(Queries.ITEM_CART_MEMBERSHIP, Object[].class)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            itemToCart.clear();
+            cartToItems.clear();
+            itemVersions.clear();
+            while (rows.next()) {
+                Object[] row = rows.get();
+                long itemId = ((Number) row[0]).longValue();
+                link(itemId, ((Number) row[1]).longValue());
+                itemVersions.put(itemId, ((Number) row[2]).longValue(), NO_VERSION);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CONSULTES
+    // ═══════════════════════════════════════════════════════════════════
+
+    public long cartOf(long itemId) {
+        lock.readLock().lock();
+        try {
+            return itemToCart.get(itemId, NO_CART);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** @return còpia dels IDs dels items del cart (array buit si no en té) */
+    public long[] itemsOf(long cartId) {
+        lock.readLock().lock();
+        try {
+            return cartToItems.get(cartId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int countItems(long cartId) {
+        lock.readLock().lock();
+        try {
+            return cartToItems.count(cartId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(long cartId, long itemId) {
+        return cartOf(itemId) == cartId && cartId != NO_CART;
+    }
+
+    /** @return nombre de relacions item → cart */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return itemToCart.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long estimatedBytes() {
+        lock.readLock().lock();
+        try {
+            return itemToCart.capacity() * 16L + cartToItems.estimatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // ACTUALITZACIONS (les fa el listener després de cada commit)
+    // ═══════════════════════════════════════════════════════════════════
+
+    private static final long NO_VERSION = -1L;
+
+    // Item nou: sempre s'aplica (SQLite pot reutilitzar l'ID d'un item esborrat)
+    void insertItem(long itemId, long cartId, long version) {
+        lock.writeLock().lock();
+        try {
+            itemVersions.put(itemId, version, NO_VERSION);
+            unlink(itemId);
+            if (cartId != NO_CART) link(itemId, cartId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Assigna l'item al cart (o el treu si cartId és NO_CART), movent-lo si ja era en un altre.
+    // Si ja s'ha aplicat una versió igual o més nova, l'update arriba tard i es descarta.
+    void setCart(long itemId, long cartId, long version) {
+        lock.writeLock().lock();
+        try {
+            if (version <= itemVersions.get(itemId, NO_VERSION)) return;
+            itemVersions.put(itemId, version, NO_VERSION);
+            unlink(itemId);
+            if (cartId != NO_CART) link(itemId, cartId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // L'esborrat porta la versió de l'últim update: l'update amb aquesta versió ja no s'aplicarà
+    void removeItem(long itemId, long version) {
+        lock.writeLock().lock();
+        try {
+            if (version < itemVersions.get(itemId, NO_VERSION)) return;
+            itemVersions.put(itemId, version, NO_VERSION);
+            unlink(itemId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void removeCart(long cartId) {
+        lock.writeLock().lock();
+        try {
+            for (long itemId : cartToItems.get(cartId)) {
+                itemToCart.remove(itemId, NO_CART);
+            }
+            cartToItems.remove(cartId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void link(long itemId, long cartId) {
+        itemToCart.put(itemId, cartId, NO_CART);
+        cartToItems.add(cartId, itemId);
+    }
+
+    private void unlink(long itemId) {
+        long previous = itemToCart.remove(itemId, NO_CART);
+        if (previous != NO_CART) cartToItems.removeElement(previous, itemId);
+    }
+}
@@ -0,0 +1,76 @@
+package com.project.index;
+
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+import com.project.Cart;
+import com.project.Item;
+
+/**
+ * LISTENER POST-COMMIT: Aplica a CartItemIndex els canvis de Cart i Item
+ * un cop la transacció s'ha confirmat (un rollback no embruta mai l'índex).
+ * Cada canvi d'Item porta la seva @Version perquè l'índex descarti els que arriben tard.
+ */
+public class CartItemIndexListener
+        implements PostCommitInsertEventListener, PostCommitUpdateEventListener, PostCommitDeleteEventListener {
+
+    private final CartItemIndex index;
+
+    public CartItemIndexListener(CartItemIndex index) {
+        this.index = index;
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> type = persister.getMappedClass();
+        return type == Item.class || type == Cart.class;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        if (event.getEntity() instanceof Item item) {
+            index.insertItem(item.getItemId(), cartIdOf(item), versionOf(item));
+        }
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        if (event.getEntity() instanceof Item item) {
+            index.setCart(item.getItemId(), cartIdOf(item), versionOf(item));
+        }
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        if (event.getEntity() instanceof Item item) {
+            index.removeItem(item.getItemId(), versionOf(item));
+        } else if (event.getEntity() instanceof Cart cart) {
+            index.removeCart(cart.getCartId());
+        }
+    }
+
+    // Si la transacció falla no hi ha res a desfer: l'índex només es toca després del commit
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent event) {}
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent event) {}
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent event) {}
+
+    private static long versionOf(Item item) {
+        return item.getVersion() == null ? 0 : item.getVersion();
+    }
+
+    // getCartId() sobre un PROXY lazy no l'inicialitza: l'ID ja és al proxy
+    private static long cartIdOf(Item item) {
+        Cart cart = item.getCart();
+        return (cart == null || cart.getCartId() == null) ? CartItemIndex.NO_CART : cart.getCartId();
+    }
+}
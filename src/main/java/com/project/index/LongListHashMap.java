@@ -0,0 +1,162 @@
+package com.project.index;
+
+import java.util.Arrays;
+
+/**
+ * Taula hash long → llista de longs (cartId → itemIds), també amb adreçament obert.
+ *
+ * Cada llista és un long[] compacte on la posició 0 guarda la mida
+ * i la resta els elements. Creix per duplicació com un ArrayList, però sense boxing.
+ * No és thread-safe: CartItemIndex en controla l'accés.
+ */
+final class LongListHashMap {
+
+    private static final long EMPTY = 0L;
+    private static final long[] NONE = new long[0];
+
+    private long[] keys;
+    private long[][] lists;
+    private int size;
+    private int mask;
+
+    LongListHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expected / 0.75f)) * 2 - 1);
+        keys = new long[capacity];
+        lists = new long[capacity][];
+        mask = capacity - 1;
+    }
+
+    void add(long key, long element) {
+        int i = findOrInsert(key);
+        long[] list = lists[i];
+        int count = (int) list[0];
+        if (count + 1 == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+            lists[i] = list;
+        }
+        list[count + 1] = element;
+        list[0] = count + 1;
+    }
+
+    // Treu l'element intercanviant-lo amb l'últim (l'ordre no importa). O(mida de la llista).
+    void removeElement(long key, long element) {
+        int i = find(key);
+        if (i < 0) return;
+        long[] list = lists[i];
+        int count = (int) list[0];
+        for (int p = 1; p <= count; p++) {
+            if (list[p] == element) {
+                list[p] = list[count];
+                list[0] = count - 1;
+                if (count == 1) removeAt(i);
+                return;
+            }
+        }
+    }
+
+    void remove(long key) {
+        int i = find(key);
+        if (i >= 0) removeAt(i);
+    }
+
+    int count(long key) {
+        int i = find(key);
+        return i < 0 ? 0 : (int) lists[i][0];
+    }
+
+    boolean contains(long key, long element) {
+        int i = find(key);
+        if (i < 0) return false;
+        long[] list = lists[i];
+        for (int p = 1, count = (int) list[0]; p <= count; p++) {
+            if (list[p] == element) return true;
+        }
+        return false;
+    }
+
+    long[] get(long key) {
+        int i = find(key);
+        if (i < 0) return NONE;
+        long[] list = lists[i];
+        return Arrays.copyOfRange(list, 1, (int) list[0] + 1);
+    }
+
+    int size() { return size; }
+
+    // Estimació de memòria: taula + arrays de cada llista (capçalera d'array ≈ 16 bytes)
+    long estimatedBytes() {
+        long bytes = keys.length * 8L + lists.length * 8L;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) bytes += 16 + lists[i].length * 8L;
+        }
+        return bytes;
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(lists, null);
+        size = 0;
+    }
+
+    private int find(long key) {
+        // La clau 0 marca les posicions buides: coincidiria amb la primera que trobés
+        if (key == EMPTY) return -1;
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) return i;
+            if (k == EMPTY) return -1;
+        }
+    }
+
+    private int findOrInsert(long key) {
+        if (key == EMPTY) throw new IllegalArgumentException("La clau 0 està reservada");
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) return i;
+            if (k == EMPTY) {
+                keys[i] = key;
+                lists[i] = new long[4];
+                if (++size > keys.length * 3 / 4) {
+                    resize();
+                    return find(key);
+                }
+                return i;
+            }
+        }
+    }
+
+    private void removeAt(int hole) {
+        size--;
+        for (int i = (hole + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            int ideal = slot(keys[i]);
+            if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                lists[hole] = lists[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+        lists[hole] = null;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[][] oldLists = lists;
+        keys = new long[oldKeys.length * 2];
+        lists = new long[oldKeys.length * 2][];
+        mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int j = slot(oldKeys[i]);
+                while (keys[j] != EMPTY) j = (j + 1) & mask;
+                keys[j] = oldKeys[i];
+                lists[j] = oldLists[i];
+            }
+        }
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,113 @@
+package com.project.index;
+
+import java.util.Arrays;
+
+/**
+ * Taula hash long → long amb ADREÇAMENT OBERT (sense objectes per entrada, sense boxing).
+ *
+ * Dos arrays paral·lels (keys/values) i sondeig lineal. Un Long a un HashMap
+ * ocupa ~50-80 bytes per entrada; aquí són 16 bytes per posició.
+ * La clau 0 es reserva com a "posició buida" (els IDs IDENTITY comencen a 1).
+ * No és thread-safe: CartItemIndex en controla l'accés.
+ */
+final class LongLongHashMap {
+
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private long[] values;
+    private int size;
+    private int mask;
+
+    LongLongHashMap(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expected / 0.75f)) * 2 - 1);
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    int size() { return size; }
+
+    int capacity() { return keys.length; }
+
+    long get(long key, long missing) {
+        // La clau 0 marca les posicions buides: coincidiria amb la primera que trobés
+        if (key == EMPTY) return missing;
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) return values[i];
+            if (k == EMPTY) return missing;
+        }
+    }
+
+    /** @return el valor anterior, o "missing" si la clau no hi era */
+    long put(long key, long value, long missing) {
+        if (key == EMPTY) throw new IllegalArgumentException("La clau 0 està reservada");
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == key) {
+                long previous = values[i];
+                values[i] = value;
+                return previous;
+            }
+            if (k == EMPTY) {
+                keys[i] = key;
+                values[i] = value;
+                if (++size > keys.length * 3 / 4) resize();
+                return missing;
+            }
+        }
+    }
+
+    /** @return el valor eliminat, o "missing" si la clau no hi era */
+    long remove(long key, long missing) {
+        for (int i = slot(key); ; i = (i + 1) & mask) {
+            long k = keys[i];
+            if (k == EMPTY) return missing;
+            if (k == key) {
+                long previous = values[i];
+                shiftBack(i);
+                size--;
+                return previous;
+            }
+        }
+    }
+
+    void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    // BACKWARD-SHIFT DELETION: en lloc de deixar "làpides", recol·loquem les entrades
+    // següents del mateix grup perquè les cerques no es trenquin.
+    private void shiftBack(int hole) {
+        for (int i = (hole + 1) & mask; keys[i] != EMPTY; i = (i + 1) & mask) {
+            int ideal = slot(keys[i]);
+            // L'entrada "i" es pot moure al forat si el forat és entre la seva posició ideal i "i"
+            if (((i - ideal) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = EMPTY;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new long[oldKeys.length * 2];
+        mask = keys.length - 1;
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) put(oldKeys[i], oldValues[i], 0L);
+        }
+    }
+
+    // Barreja de Fibonacci: IDs consecutius queden repartits per tota la taula
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+}
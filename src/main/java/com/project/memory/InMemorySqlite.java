@@ -0,0 +1,67 @@
+package com.project.memory;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.UUID;
+
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.Codes;
+import org.sqlite.core.DB;
+
+/**
+ * BBDD SQLITE EN MEMÒRIA compartida entre totes les connexions del pool.
+ *
+ * - URL "file:mem-<uuid>?mode=memory&cache=shared": cada instància és una BBDD
+ *   nova i aïllada (dos tests o jobs en paral·lel no es veuen mai entre ells).
+ * - SQLite esborra una BBDD en memòria quan es tanca l'última connexió: la
+ *   connexió ANCORA la manté viva mentre el SessionFactory obre i tanca connexions.
+ * - backupTo / restoreFrom fan servir l'API de BACKUP de SQLite (còpia pàgina a
+ *   pàgina, consistent) per guardar-la a un fitxer o carregar-la d'un fitxer.
+ */
+public final class InMemorySqlite implements AutoCloseable {
+
+    private final String url;
+    private final Connection anchor;
+
+    private InMemorySqlite(String url, Connection anchor) {
+        this.url = url;
+        this.anchor = anchor;
+    }
+
+    public static InMemorySqlite create() throws SQLException {
+        String url = "jdbc:sqlite:file:mem-" + UUID.randomUUID() + "?mode=memory&cache=shared";
+        return new InMemorySqlite(url, DriverManager.getConnection(url));
+    }
+
+    /** URL JDBC per a hibernate.connection.url */
+    public String getUrl() {
+        return url;
+    }
+
+    // SNAPSHOT: Escriu tota la BBDD al fitxer (el crea o el sobreescriu)
+    public void backupTo(Path file) throws SQLException {
+        check(database().backup("main", file.toAbsolutePath().toString(), null), "backup a " + file);
+    }
+
+    // RESTORE: Substitueix el contingut de la BBDD pel del fitxer
+    public void restoreFrom(Path file) throws SQLException {
+        check(database().restore("main", file.toAbsolutePath().toString(), null), "restore des de " + file);
+    }
+
+    @Override
+    public void close() throws SQLException {
+        anchor.close();
+    }
+
+    private DB database() throws SQLException {
+        return anchor.unwrap(SQLiteConnection.class).getDatabase();
+    }
+
+    private static void check(int resultCode, String operation) throws SQLException {
+        if (resultCode != Codes.SQLITE_OK && resultCode != Codes.SQLITE_DONE) {
+            throw new SQLException("Error de SQLite (" + resultCode + ") en el " + operation);
+        }
+    }
+}
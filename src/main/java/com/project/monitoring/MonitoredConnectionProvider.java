@@ -0,0 +1,37 @@
+package com.project.monitoring;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+
+import org.hibernate.engine.jdbc.connections.internal.DriverManagerConnectionProviderImpl;
+
+/**
+ * CONNECTION PROVIDER: El pool de connexions integrat d'Hibernate, però cada
+ * connexió que entrega passa per SqlMonitor per mesurar les sentències.
+ *
+ * Manager l'instal·la per defecte (hibernate.connection.provider_class).
+ * Llindar de consulta lenta: propietat "project.sql.slow_threshold_ms".
+ */
+public class MonitoredConnectionProvider extends DriverManagerConnectionProviderImpl {
+
+    @Override
+    public void configure(Map<String, Object> configurationValues) {
+        super.configure(configurationValues);
+        Object threshold = configurationValues.get(SqlMonitor.SLOW_THRESHOLD_MS);
+        if (threshold != null) {
+            SqlMonitor.setSlowThresholdMs(Long.parseLong(threshold.toString().trim()));
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return SqlMonitor.wrap(super.getConnection());
+    }
+
+    @Override
+    public void closeConnection(Connection conn) throws SQLException {
+        // Al pool hi tornem la connexió REAL, no l'embolcall
+        super.closeConnection(SqlMonitor.unwrap(conn));
+    }
+}
@@ -0,0 +1,274 @@
+package com.project.monitoring;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import jdk.jfr.EventType;
+
+/**
+ * SQL MONITOR: Capa d'inspecció JDBC per sota d'Hibernate.
+ *
+ * Embolcalla (amb java.lang.reflect.Proxy) Connection i Statement per:
+ * - Mesurar el temps d'execució (execute*) de cada sentència.
+ * - Enviar les sentències més lentes que el llindar al "slow-query log".
+ * - Emetre un SqlStatementEvent de JFR per sentència (només si hi ha gravació activa).
+ *
+ * COST: cada crida a Connection/Statement (setString, execute...) passa per
+ * Method.invoke, i cada execute* paga dos System.nanoTime(). El temps es mesura
+ * només a l'execute*. El ResultSet NOMÉS s'embolcalla quan la sentència es registrarà
+ * (lenta o amb gravació JFR): llavors es compten els next() i el registre es fa en
+ * tancar-lo, amb les files llegides. La resta de SELECT van directes al driver.
+ * L'event JFR només es crea si està activat i l'origen (StackWalker) només es
+ * calcula per a sentències lentes o gravades.
+ */
+public final class SqlMonitor {
+
+    public static final String SLOW_THRESHOLD_MS = "project.sql.slow_threshold_ms";
+
+    /** Sentència que ha superat el llindar de consulta lenta. */
+    public record SlowStatement(String origin, String sql, long millis, long rows) {}
+
+    // Classes que considerem "punt d'entrada": l'origen és el seu frame més extern
+    private static final Set<String> ORIGIN_CLASSES = Set.of(
+        "com.project.Manager",
+        "com.project.ShardedManager"
+    );
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    private static final EventType EVENT_TYPE = EventType.getEventType(SqlStatementEvent.class);
+
+    private static volatile long slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(200);
+    private static volatile Consumer<SlowStatement> slowQueryLog = SqlMonitor::printSlowStatement;
+
+    private static final LongAdder statementCount = new LongAdder();
+    private static final LongAdder slowStatementCount = new LongAdder();
+    private static final LongAdder totalNanos = new LongAdder();
+
+    private SqlMonitor() {}
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CONFIGURACIÓ I ESTADÍSTIQUES
+    // ═══════════════════════════════════════════════════════════════════
+
+    public static void setSlowThresholdMs(long millis) {
+        slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    // Per defecte el slow-query log escriu a System.err; es pot redirigir (fitxer, tests...)
+    public static void setSlowQueryLog(Consumer<SlowStatement> log) {
+        slowQueryLog = (log != null) ? log : SqlMonitor::printSlowStatement;
+    }
+
+    public static long getStatementCount() { return statementCount.sum(); }
+    public static long getSlowStatementCount() { return slowStatementCount.sum(); }
+    public static long getTotalTimeMillis() { return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum()); }
+
+    public static void reset() {
+        statementCount.reset();
+        slowStatementCount.reset();
+        totalNanos.reset();
+    }
+
+    private static void printSlowStatement(SlowStatement s) {
+        System.err.println("[SQL LENTA] " + s.millis() + " ms | " + s.rows() + " files | "
+            + s.origin() + " | " + s.sql());
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // EMBOLCALLS JDBC
+    // ═══════════════════════════════════════════════════════════════════
+
+    public static Connection wrap(Connection connection) {
+        if (connection == null || Proxy.isProxyClass(connection.getClass())) return connection;
+        return (Connection) Proxy.newProxyInstance(SqlMonitor.class.getClassLoader(),
+            new Class<?>[] { Connection.class }, new ConnectionHandler(connection));
+    }
+
+    public static Connection unwrap(Connection connection) {
+        if (connection != null && Proxy.isProxyClass(connection.getClass())
+                && Proxy.getInvocationHandler(connection) instanceof ConnectionHandler handler) {
+            return handler.delegate;
+        }
+        return connection;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class ConnectionHandler implements InvocationHandler {
+        private final Connection delegate;
+
+        ConnectionHandler(Connection delegate) { this.delegate = delegate; }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SqlMonitor.invoke(delegate, method, args);
+            String name = method.getName();
+            if (result instanceof Statement statement
+                    && (name.startsWith("prepare") || name.equals("createStatement"))) {
+                String sql = (args != null && args.length > 0 && args[0] instanceof String s) ? s : null;
+                Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                    : statement instanceof PreparedStatement ? PreparedStatement.class
+                    : Statement.class;
+                return Proxy.newProxyInstance(SqlMonitor.class.getClassLoader(),
+                    new Class<?>[] { type }, new StatementHandler(statement, sql));
+            }
+            return result;
+        }
+    }
+
+    private static final class StatementHandler implements InvocationHandler {
+        private final Statement delegate;
+        private final String sql;
+
+        StatementHandler(Statement delegate, String sql) {
+            this.delegate = delegate;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return SqlMonitor.invoke(delegate, method, args);
+            }
+            // Statement.execute*(String sql): la SQL arriba com a paràmetre
+            String text = (sql != null) ? sql
+                : (args != null && args.length > 0 && args[0] instanceof String s) ? s : "?";
+
+            // Sense gravació JFR que el demani, no es crea cap event
+            SqlStatementEvent event = EVENT_TYPE.isEnabled() ? new SqlStatementEvent() : null;
+            if (event != null) event.begin();
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = SqlMonitor.invoke(delegate, method, args);
+            } catch (Throwable t) {
+                long elapsed = System.nanoTime() - start;
+                if (count(elapsed, event)) report(new Recording(text, elapsed, event, origin()), -1, t);
+                throw t;
+            }
+            long elapsed = System.nanoTime() - start;
+            if (!count(elapsed, event)) return result;
+
+            // Es registrarà: l'origen es calcula ARA (dins la crida de Manager)
+            Recording recording = new Recording(text, elapsed, event, origin());
+            if (result instanceof ResultSet resultSet) {
+                // SELECT: les files es coneixen quan el que crida les ha llegit (en tancar)
+                return Proxy.newProxyInstance(SqlMonitor.class.getClassLoader(),
+                    new Class<?>[] { ResultSet.class }, new CountingResultSetHandler(resultSet, recording));
+            }
+            report(recording, affectedRows(result), null);
+            return result;
+        }
+
+        private long affectedRows(Object result) throws Exception {
+            if (result instanceof Number n) return n.longValue();
+            if (result instanceof int[] counts) {
+                long sum = 0;
+                for (int c : counts) sum += Math.max(c, 0);
+                return sum;
+            }
+            if (result instanceof long[] counts) {
+                long sum = 0;
+                for (long c : counts) sum += Math.max(c, 0);
+                return sum;
+            }
+            // execute(): false = hi ha recompte d'actualització, true = hi ha ResultSet
+            if (Boolean.FALSE.equals(result)) return delegate.getUpdateCount();
+            return -1;
+        }
+    }
+
+    // Només per a sentències que es registraran: compta els next() i registra en tancar
+    private static final class CountingResultSetHandler implements InvocationHandler {
+        private final ResultSet delegate;
+        private final Recording recording;
+        private long rows;
+        private boolean reported;
+
+        CountingResultSetHandler(ResultSet delegate, Recording recording) {
+            this.delegate = delegate;
+            this.recording = recording;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = SqlMonitor.invoke(delegate, method, args);
+            String name = method.getName();
+            if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                rows++;
+            } else if (name.equals("close") && !reported) {
+                reported = true;
+                report(recording, rows, null);
+            }
+            return result;
+        }
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // REGISTRE D'UNA SENTÈNCIA
+    // ═══════════════════════════════════════════════════════════════════
+
+    // Sentència mesurada que s'ha de registrar (lenta o gravada per JFR)
+    private record Recording(String sql, long elapsedNanos, SqlStatementEvent event, String origin) {}
+
+    // Estadístiques de totes les sentències; true si aquesta s'ha de registrar
+    private static boolean count(long elapsedNanos, SqlStatementEvent event) {
+        statementCount.increment();
+        totalNanos.add(elapsedNanos);
+        if (event != null) event.end();
+        return elapsedNanos >= slowThresholdNanos || (event != null && event.shouldCommit());
+    }
+
+    private static void report(Recording r, long rows, Throwable error) {
+        boolean slow = r.elapsedNanos >= slowThresholdNanos;
+        if (slow) {
+            slowStatementCount.increment();
+            slowQueryLog.accept(new SlowStatement(r.origin, r.sql, TimeUnit.NANOSECONDS.toMillis(r.elapsedNanos), rows));
+        }
+        SqlStatementEvent event = r.event;
+        if (event != null && event.shouldCommit()) {
+            event.sql = r.sql;
+            event.origin = r.origin;
+            event.rows = rows;
+            event.slow = slow;
+            event.error = (error != null) ? error.getMessage() : null;
+            event.commit();
+        }
+    }
+
+    // El frame MÉS EXTERN de Manager: "Manager.updateCart" i no el runWithRetry intern
+    private static String origin() {
+        return WALKER.walk(frames -> frames
+            .filter(f -> ORIGIN_CLASSES.contains(f.getClassName()))
+            .reduce((inner, outer) -> outer)
+            .map(f -> simpleName(f.getClassName()) + "." + methodName(f.getMethodName()))
+            .orElse("?"));
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    // lambda$updateCart$3 → updateCart
+    private static String methodName(String name) {
+        if (!name.startsWith("lambda$")) return name;
+        int end = name.indexOf('$', 7);
+        return end > 7 ? name.substring(7, end) : name;
+    }
+}
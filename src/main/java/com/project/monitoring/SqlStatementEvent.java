@@ -0,0 +1,40 @@
+package com.project.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * EVENT JFR (JDK Flight Recorder): Una sentència SQL executada per Hibernate.
+ *
+ * Si no hi ha cap gravació JFR activa, begin()/end() són pràcticament gratuïts
+ * i shouldCommit() retorna false, així que es pot deixar activat en producció.
+ * Per gravar: java -XX:StartFlightRecording=filename=persistencia.jfr ...
+ */
+@Name("com.project.SqlStatement")
+@Label("SQL Statement")
+@Category({ "Persistència", "SQL" })
+@Description("Execució d'una sentència JDBC amb el mètode de Manager que l'ha originat")
+@StackTrace(false)
+public class SqlStatementEvent extends Event {
+
+    @Label("SQL")
+    String sql;
+
+    @Label("Origen")
+    @Description("Mètode de Manager/ShardedManager que ha provocat la sentència")
+    String origin;
+
+    @Label("Files")
+    @Description("Files afectades (INSERT/UPDATE/DELETE) o llegides (SELECT); -1 si es desconeix")
+    long rows;
+
+    @Label("Lenta")
+    boolean slow;
+
+    @Label("Error")
+    String error;
+}
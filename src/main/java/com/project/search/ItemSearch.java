@@ -0,0 +1,191 @@
+package com.project.search;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.community.dialect.SQLiteDialect;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.dialect.MySQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.SelectionQuery;
+
+/**
+ * CERCA DE TEXT sobre Item.name amb un índex de la BBDD (sense carregar entitats).
+ *
+ * - SQLite: taula virtual FTS5 "items_fts" de contingut extern (no duplica els noms),
+ *   sincronitzada amb TRIGGERS d'insert/update/delete sobre "items".
+ * - MySQL: índex FULLTEXT sobre items.name (el manté la mateixa BBDD).
+ * - Altres BBDD: LIKE per prefix a l'inici de cada paraula (separades per espais);
+ *   recorre la taula, només per no deixar la funció sense servei.
+ *
+ * La consulta es parteix en paraules i cada paraula és un PREFIX:
+ * "poma verm" troba "Poma vermella". Totes les paraules han d'aparèixer.
+ */
+public final class ItemSearch {
+
+    private enum Engine { SQLITE_FTS5, MYSQL_FULLTEXT, LIKE }
+
+    // Paraula = lletres i dígits; la resta (cometes, operadors, *) es descarta
+    private static final Pattern TOKEN = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private ItemSearch() {}
+
+    // ═══════════════════════════════════════════════════════════════════
+    // INSTAL·LACIÓ (un cop l'esquema ja existeix)
+    // ═══════════════════════════════════════════════════════════════════
+
+    public static void install(SessionFactory factory) {
+        Engine engine = engineFor(factory);
+        if (engine == Engine.LIKE) return;
+        try (Session session = factory.openSession()) {
+            session.doWork(conn -> {
+                try (Statement st = conn.createStatement()) {
+                    if (engine == Engine.SQLITE_FTS5) {
+                        installSqlite(st);
+                    } else {
+                        installMySql(st);
+                    }
+                }
+                if (!conn.getAutoCommit()) conn.commit();
+            });
+        }
+    }
+
+    // Si els triggers no hi són (BBDD nova o taula "items" recreada per hbm2ddl)
+    // l'índex pot estar desfasat: es creen i es reconstrueix a partir de "items".
+    private static void installSqlite(Statement st) throws SQLException {
+        st.execute("CREATE VIRTUAL TABLE IF NOT EXISTS items_fts USING fts5("
+            + "name, content='items', content_rowid='itemID', "
+            + "tokenize='unicode61 remove_diacritics 2', prefix='2 3')");
+        boolean triggersMissing;
+        try (ResultSet rs = st.executeQuery(
+                "SELECT COUNT(*) FROM sqlite_master WHERE type = 'trigger' AND name LIKE 'items_fts_%'")) {
+            triggersMissing = rs.next() && rs.getInt(1) < 3;
+        }
+        if (!triggersMissing) return;
+        st.execute("CREATE TRIGGER IF NOT EXISTS items_fts_ai AFTER INSERT ON items BEGIN "
+            + "INSERT INTO items_fts(rowid, name) VALUES (new.itemID, new.name); END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS items_fts_ad AFTER DELETE ON items BEGIN "
+            + "INSERT INTO items_fts(items_fts, rowid, name) VALUES ('delete', old.itemID, old.name); END");
+        st.execute("CREATE TRIGGER IF NOT EXISTS items_fts_au AFTER UPDATE OF name ON items BEGIN "
+            + "INSERT INTO items_fts(items_fts, rowid, name) VALUES ('delete', old.itemID, old.name); "
+            + "INSERT INTO items_fts(rowid, name) VALUES (new.itemID, new.name); END");
+        st.execute("INSERT INTO items_fts(items_fts) VALUES ('rebuild')");
+    }
+
+    private static void installMySql(Statement st) throws SQLException {
+        try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM information_schema.statistics "
+                + "WHERE table_schema = DATABASE() AND table_name = 'items' AND index_name = 'ft_items_name'")) {
+            if (rs.next() && rs.getInt(1) > 0) return;
+        }
+        st.execute("ALTER TABLE items ADD FULLTEXT INDEX ft_items_name (name)");
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // CERCA
+    // ═══════════════════════════════════════════════════════════════════
+
+    /** @return fins a "limit" resultats, els més rellevants primer */
+    public static List<ItemSearchHit> search(Session session, String query, int limit) {
+        List<String> tokens = tokens(query);
+        if (tokens.isEmpty() || limit <= 0) return List.of();
+        return switch (engineFor(session.getSessionFactory())) {
+            case SQLITE_FTS5 -> searchSqlite(session, tokens, limit);
+            case MYSQL_FULLTEXT -> searchMySql(session, tokens, limit);
+            case LIKE -> searchLike(session, tokens, limit);
+        };
+    }
+
+    // FTS5: "poma"* "verm"* (AND implícit). rank = bm25, més petit = més rellevant.
+    private static List<ItemSearchHit> searchSqlite(Session session, List<String> tokens, int limit) {
+        StringBuilder match = new StringBuilder();
+        for (String token : tokens) {
+            if (match.length() > 0) match.append(' ');
+            match.append('"').append(token).append("\"*");
+        }
+        List<Object[]> rows = session.createNativeQuery(
+                "SELECT i.itemID, i.name, i.cartId, -items_fts.rank FROM items_fts "
+              + "JOIN items i ON i.itemID = items_fts.rowid "
+              + "WHERE items_fts MATCH :match ORDER BY items_fts.rank LIMIT :limit", Object[].class)
+            .setParameter("match", match.toString())
+            .setParameter("limit", limit)
+            .list();
+        return toHits(rows);
+    }
+
+    // BOOLEAN MODE: +poma* +verm* (totes obligatòries, com a prefix)
+    private static List<ItemSearchHit> searchMySql(Session session, List<String> tokens, int limit) {
+        StringBuilder against = new StringBuilder();
+        for (String token : tokens) {
+            if (against.length() > 0) against.append(' ');
+            against.append('+').append(token).append('*');
+        }
+        List<Object[]> rows = session.createNativeQuery(
+                "SELECT itemID, name, cartId, MATCH(name) AGAINST(:q IN BOOLEAN MODE) AS score FROM items "
+              + "WHERE MATCH(name) AGAINST(:q IN BOOLEAN MODE) ORDER BY score DESC LIMIT :limit", Object[].class)
+            .setParameter("q", against.toString())
+            .setParameter("limit", limit)
+            .list();
+        return toHits(rows);
+    }
+
+    // PREFIX DE PARAULA: "tok%" (primera paraula) o "% tok%" (qualsevol altra)
+    private static List<ItemSearchHit> searchLike(Session session, List<String> tokens, int limit) {
+        StringBuilder hql = new StringBuilder("SELECT i.itemId, i.name, i.cart.cartId, 0.0 FROM Item i WHERE 1 = 1");
+        for (int t = 0; t < tokens.size(); t++) {
+            hql.append(" AND (lower(i.name) LIKE :s").append(t).append(" ESCAPE '!'")
+               .append(" OR lower(i.name) LIKE :w").append(t).append(" ESCAPE '!')");
+        }
+        SelectionQuery<Object[]> query = session.createSelectionQuery(hql.append(" ORDER BY i.name").toString(), Object[].class);
+        for (int t = 0; t < tokens.size(); t++) {
+            String prefix = escapeLike(tokens.get(t)) + "%";
+            query.setParameter("s" + t, prefix);
+            query.setParameter("w" + t, "% " + prefix);
+        }
+        return toHits(query.setMaxResults(limit).list());
+    }
+
+    // TOKEN ja exclou % i _, però escapem igualment per si canvia la definició de paraula
+    static String escapeLike(String token) {
+        return token.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // UTILITATS
+    // ═══════════════════════════════════════════════════════════════════
+
+    static List<String> tokens(String query) {
+        List<String> tokens = new ArrayList<>();
+        if (query == null) return tokens;
+        Matcher m = TOKEN.matcher(query.toLowerCase(Locale.ROOT));
+        while (m.find()) tokens.add(m.group());
+        return tokens;
+    }
+
+    private static List<ItemSearchHit> toHits(List<Object[]> rows) {
+        List<ItemSearchHit> hits = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            hits.add(new ItemSearchHit(
+                ((Number) row[0]).longValue(),
+                (String) row[1],
+                row[2] == null ? null : ((Number) row[2]).longValue(),
+                row[3] == null ? 0.0 : ((Number) row[3]).doubleValue()));
+        }
+        return hits;
+    }
+
+    private static Engine engineFor(SessionFactory factory) {
+        Dialect dialect = factory.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+        if (dialect instanceof SQLiteDialect) return Engine.SQLITE_FTS5;
+        if (dialect instanceof MySQLDialect) return Engine.MYSQL_FULLTEXT;
+        return Engine.LIKE;
+    }
+}
@@ -0,0 +1,8 @@
+package com.project.search;
+
+/**
+ * RESULTAT DE CERCA: Només el que cal per mostrar una llista (sense entitats ni sessió).
+ *
+ * @param score rellevància; més gran = més rellevant (0 si el motor no en calcula)
+ */
+public record ItemSearchHit(long itemId, String name, Long cartId, double score) {}
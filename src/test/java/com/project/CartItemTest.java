@@ -1,10 +1,36 @@
 package com.project;
 
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.junit.jupiter.api.*;
+
+import com.project.aggregates.CartAggregates;
+import com.project.archive.CartArchiver;
+import com.project.events.ChangeEvent;
+import com.project.events.ChangeFeed;
+import com.project.index.CartItemIndex;
+import com.project.monitoring.SqlMonitor;
+import com.project.search.ItemSearch;
+import com.project.search.ItemSearchHit;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Collection;
 import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -322,6 +348,674 @@ public class CartItemTest {
         }, "Eliminar item inexistent no hauria de llançar excepció");
     }
 
+    @Test
+    @Order(17)
+    public void testCountAndContainsWithoutLoadingItems() {
+        // ARRANGE: Cart propi amb 2 items i un tercer item fora del cart
+        Cart cart = Manager.addCart("Carret Comptador");
+        Item inside1 = Manager.addItem("Dins 1");
+        Item inside2 = Manager.addItem("Dins 2");
+        Item outside = Manager.addItem("Fora");
+        Set<Item> items = new HashSet<>();
+        items.add(inside1);
+        items.add(inside2);
+        Manager.updateCart(cart.getCartId(), cart.getType(), items);
+
+        // ACT & ASSERT: Consultes dirigides (COUNT) sense inicialitzar la col·lecció
+        assertEquals(2, Manager.countItems(cart.getCartId()), "El carret hauria de tenir 2 items");
+        assertTrue(Manager.containsItem(cart.getCartId(), inside1.getItemId()), "L'item 1 hauria de ser al carret");
+        assertFalse(Manager.containsItem(cart.getCartId(), outside.getItemId()), "L'item de fora no hauria de ser al carret");
+
+        // @Formula: findAll(Cart) porta el recompte calculat per la BBDD
+        Cart loaded = findCartById(cart.getCartId());
+        assertEquals(2, loaded.getItemCount(), "El recompte @Formula hauria de ser 2");
+
+        // Cleanup: CascadeType.ALL esborra també els items del cart
+        Manager.delete(Cart.class, cart.getCartId());
+        Manager.delete(Item.class, outside.getItemId());
+    }
+
+    @Test
+    @Order(18)
+    public void testConcurrentUpdatesDoNotLoseWrites() throws Exception {
+        // TEST DE CONCURRÈNCIA: Diversos fils actualitzen el MATEIX item alhora.
+        // Amb @Version cada commit incrementa la versió exactament una vegada,
+        // així que versió final == nombre d'actualitzacions confirmades (cap "lost update").
+        Item shared = Manager.addItem("Compartit");
+        int threads = 4;
+        int updatesPerThread = 10;
+        AtomicInteger committed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Manager.setRetryPolicy(20, 5);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < updatesPerThread; i++) {
+                        if (Manager.updateItem(shared.getItemId(), "Fil " + thread + " - " + i)) {
+                            committed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        } finally {
+            // La política és global: la resta de tests han de tenir la per defecte
+            pool.shutdownNow();
+            Manager.setRetryPolicy(Manager.DEFAULT_MAX_RETRIES, Manager.DEFAULT_RETRY_BASE_DELAY_MS);
+        }
+
+        Item reloaded = findItemById(shared.getItemId());
+        assertTrue(committed.get() > 0, "Almenys una actualització s'hauria de confirmar");
+        assertEquals(committed.get(), reloaded.getVersion().intValue(),
+            "Cada actualització confirmada hauria d'incrementar la versió una sola vegada");
+
+        // Cleanup
+        Manager.delete(Item.class, shared.getItemId());
+    }
+
+    @Test
+    @Order(19)
+    public void testFindByUuid() {
+        // ARRANGE
+        Cart cart = Manager.addCart("Carret UUID");
+        Item item1 = Manager.addItem("UUID 1");
+        Item item2 = Manager.addItem("UUID 2");
+
+        // ACT & ASSERT: Cerca individual pel natural-id
+        Cart found = Manager.findCartByUuid(cart.getUuid());
+        assertNotNull(found, "El carret s'hauria de trobar pel seu UUID");
+        assertEquals(cart.getCartId(), found.getCartId());
+        assertEquals(item1.getItemId(), Manager.findItemByUuid(item1.getUuid()).getItemId());
+        assertNull(Manager.findItemByUuid("no-existeix"), "Un UUID desconegut hauria de retornar null");
+
+        // BULK: Només retorna els UUIDs que existeixen
+        List<Item> items = Manager.findAllByUuid(Item.class, List.of(item2.getUuid(), "no-existeix", item1.getUuid()));
+        assertEquals(2, items.size(), "Només s'haurien de trobar els 2 items existents");
+        assertTrue(items.contains(item1));
+        assertTrue(items.contains(item2));
+
+        // Cleanup
+        Manager.delete(Cart.class, cart.getCartId());
+        Manager.delete(Item.class, item1.getItemId());
+        Manager.delete(Item.class, item2.getItemId());
+    }
+
+    @Test
+    @Order(20)
+    public void testSlowQueryLogReportsOrigin() {
+        // ARRANGE: Llindar 0 ms → TOTES les sentències es consideren lentes
+        List<SqlMonitor.SlowStatement> logged = new CopyOnWriteArrayList<>();
+        SqlMonitor.setSlowQueryLog(logged::add);
+        SqlMonitor.setSlowThresholdMs(0);
+        try {
+            // ACT
+            List<Item> items = Manager.findAll(Item.class);
+
+            // ASSERT: La SELECT queda registrada amb el mètode d'origen
+            SqlMonitor.SlowStatement select = logged.stream()
+                .filter(s -> s.origin().equals("Manager.findAll"))
+                .findFirst()
+                .orElse(null);
+            assertNotNull(select, "La consulta de findAll hauria d'aparèixer al slow-query log");
+            assertTrue(select.sql().toLowerCase().startsWith("select"));
+            // Les files d'una SELECT registrada són les que Hibernate ha llegit
+            assertEquals(items.size(), select.rows());
+        } finally {
+            SqlMonitor.setSlowThresholdMs(200);
+            SqlMonitor.setSlowQueryLog(null);
+        }
+    }
+
+    @Test
+    @Order(21)
+    public void testCartItemIndexFollowsCommits() {
+        // ARRANGE: Un item assignat ABANS d'activar l'índex (ha de venir de la càrrega inicial)
+        Cart cartA = Manager.addCart("Índex A");
+        Cart cartB = Manager.addCart("Índex B");
+        Item preexisting = Manager.addItem("Previ");
+        Manager.updateCart(cartA.getCartId(), cartA.getType(), Set.of(preexisting));
+
+        CartItemIndex index = Manager.enableCartItemIndex();
+        assertEquals(cartA.getCartId(), index.cartOf(preexisting.getItemId()), "La càrrega inicial hauria d'incloure l'item");
+
+        // ACT: Canvis posteriors arriben per events post-commit
+        Item added = Manager.addItem("Nou");
+        assertEquals(CartItemIndex.NO_CART, index.cartOf(added.getItemId()), "Un item nou no té cart");
+        Manager.updateCart(cartA.getCartId(), cartA.getType(), Set.of(preexisting, added));
+        assertEquals(2, index.countItems(cartA.getCartId()));
+        assertTrue(index.contains(cartA.getCartId(), added.getItemId()));
+
+        // Moure un item a un altre cart
+        Manager.updateCart(cartB.getCartId(), cartB.getType(), Set.of(added));
+        assertEquals(cartB.getCartId(), index.cartOf(added.getItemId()), "L'item s'hauria d'haver mogut al cart B");
+        assertArrayEquals(new long[] { preexisting.getItemId() }, index.itemsOf(cartA.getCartId()));
+
+        // Esborrar un cart esborra (CASCADE) els seus items i les seves relacions
+        Manager.delete(Cart.class, cartA.getCartId());
+        assertEquals(0, index.countItems(cartA.getCartId()));
+        assertEquals(CartItemIndex.NO_CART, index.cartOf(preexisting.getItemId()));
+
+        // Cleanup
+        Manager.delete(Cart.class, cartB.getCartId());
+        assertEquals(0, index.size(), "Després d'esborrar-ho tot l'índex hauria de quedar buit");
+    }
+
+    @Test
+    @Order(22)
+    public void testChangeFeedPublishesCommittedChanges() throws Exception {
+        // ARRANGE: Subscriptor que acumula els lots rebuts
+        List<ChangeEvent> received = new CopyOnWriteArrayList<>();
+        ChangeFeed feed = Manager.enableChangeFeed();
+        feed.subscribe(received::addAll);
+
+        // ACT
+        Cart cart = Manager.addCart("Carret Events");
+        Item item = Manager.addItem("Item Events");
+        Manager.updateCart(cart.getCartId(), cart.getType(), Set.of(item));
+        Manager.delete(Cart.class, cart.getCartId());
+
+        // ASSERT: L'entrega és asíncrona; esperem el DELETE del cart
+        long deadline = System.currentTimeMillis() + 5000;
+        while (received.stream().noneMatch(e -> e.kind() == ChangeEvent.Kind.DELETE && "Cart".equals(e.entity()))
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(received.contains(new ChangeEvent(ChangeEvent.Kind.INSERT, "Cart", cart.getCartId(), cart.getUuid(), null, null, 0L)));
+        assertTrue(received.contains(new ChangeEvent(ChangeEvent.Kind.INSERT, "Item", item.getItemId(), item.getUuid(), null, null, 0L)));
+
+        // updateCart: l'item passa de "sense cart" al cart (canvi de pertinença)
+        ChangeEvent membership = received.stream()
+            .filter(e -> e.kind() == ChangeEvent.Kind.UPDATE && "Item".equals(e.entity()) && item.getItemId().equals(e.id()))
+            .findFirst()
+            .orElse(null);
+        assertNotNull(membership, "Hauria d'arribar l'UPDATE de l'item");
+        assertTrue(membership.isMembershipChange());
+        assertEquals(cart.getCartId(), membership.cartId());
+        assertNull(membership.previousCartId());
+        // La versió ordena els events de l'item encara que arribin desordenats
+        ChangeEvent insert = received.stream()
+            .filter(e -> e.kind() == ChangeEvent.Kind.INSERT && item.getItemId().equals(e.id()) && "Item".equals(e.entity()))
+            .findFirst()
+            .orElseThrow();
+        assertTrue(membership.isNewerThan(insert));
+        assertFalse(insert.isNewerThan(membership));
+
+        // CASCADE: esborrar el cart també publica el DELETE del seu item
+        assertTrue(received.stream().anyMatch(e -> e.kind() == ChangeEvent.Kind.DELETE && "Item".equals(e.entity()) && item.getItemId().equals(e.id())));
+        assertEquals(0, feed.getDroppedCount());
+
+        // Mida de lot invàlida: es rebutja en lloc de deixar el feed mut
+        assertThrows(IllegalArgumentException.class, () -> new ChangeFeed(16, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ChangeFeed(16, -1));
+    }
+
+    @Test
+    @Order(23)
+    public void testFetchPlansLoadExactlyTheGraph() {
+        // ARRANGE
+        Cart cart = Manager.addCart("Carret Plans");
+        Item item1 = Manager.addItem("Pla 1");
+        Item item2 = Manager.addItem("Pla 2");
+        Manager.updateCart(cart.getCartId(), cart.getType(), Set.of(item1, item2));
+
+        // CART_ONLY: els items NO s'han carregat (Hibernate.isInitialized = false)
+        Cart only = Manager.getCart(cart.getCartId(), FetchPlan.CART_ONLY);
+        assertFalse(Hibernate.isInitialized(only.getItems()), "CART_ONLY no hauria de carregar els items");
+
+        // CART_WITH_ITEMS i el pla dinàmic equivalent
+        Cart withItems = Manager.getCart(cart.getCartId(), FetchPlan.CART_WITH_ITEMS);
+        assertTrue(Hibernate.isInitialized(withItems.getItems()));
+        assertEquals(2, withItems.getItems().size());
+        Cart dynamic = Manager.getCart(cart.getCartId(), FetchPlan.of(Cart.class, "items"));
+        assertTrue(Hibernate.isInitialized(dynamic.getItems()));
+
+        // ITEM_WITH_CART: el cart es pot llegir fora de la sessió
+        Item withCart = Manager.getItem(item1.getItemId(), FetchPlan.ITEM_WITH_CART);
+        assertTrue(Hibernate.isInitialized(withCart.getCart()));
+        assertEquals("Carret Plans", withCart.getCart().getType());
+        Item onlyItem = Manager.getItem(item1.getItemId(), FetchPlan.ITEM_ONLY);
+        assertFalse(Hibernate.isInitialized(onlyItem.getCart()), "ITEM_ONLY hauria de deixar el cart com a proxy");
+
+        // findAll amb col·lecció al graf: sense carrets duplicats pel JOIN
+        long copies = Manager.findAll(FetchPlan.CART_WITH_ITEMS).stream()
+            .filter(c -> c.getCartId().equals(cart.getCartId()))
+            .count();
+        assertEquals(1, copies, "El carret no hauria d'aparèixer duplicat");
+
+        // Cleanup
+        Manager.delete(Cart.class, cart.getCartId());
+    }
+
+    @Test
+    @Order(24)
+    public void testNamedQueriesHitThePlanCache() {
+        // ARRANGE: Estadístiques activades només durant aquest test
+        Manager.setStatisticsEnabled(true);
+        try {
+            Manager.findAll(Item.class);
+            Manager.QueryPlanCacheStats before = Manager.getQueryPlanCacheStats();
+
+            // ACT: La mateixa named query repetida
+            for (int i = 0; i < 5; i++) {
+                Manager.findAll(Item.class);
+            }
+
+            // ASSERT: Les repeticions reutilitzen el pla (encerts, cap fallada nova)
+            Manager.QueryPlanCacheStats after = Manager.getQueryPlanCacheStats();
+            assertEquals(before.misses(), after.misses(), "Cap repetició hauria de fallar a la caché");
+            assertTrue(after.hits() - before.hits() >= 5, "Cada repetició hauria de ser un encert");
+        } finally {
+            Manager.setStatisticsEnabled(false);
+        }
+    }
+
+    @Test
+    @Order(25)
+    public void testReadOnlyReadsDoNotAffectLaterWrites() {
+        // ARRANGE
+        Cart cart = Manager.addCart("ReadOnly");
+        Item item = Manager.addItem("ReadOnly Item");
+        Manager.updateCart(cart.getCartId(), "ReadOnly", new HashSet<>(Set.of(item)));
+
+        // ACT: Lectures en sessions de només lectura (el mode per defecte)
+        Cart loaded = Manager.getCartWithItems(cart.getCartId());
+        long count = Manager.countItems(cart.getCartId());
+
+        // ASSERT: Les lectures funcionen igual...
+        assertEquals(1, loaded.getItems().size());
+        assertEquals(1, count);
+
+        // ...i les connexions que tornen al pool continuen admetent escriptures
+        assertTrue(Manager.updateItem(item.getItemId(), "ReadOnly Item 2"));
+        Item updated = Manager.getItem(item.getItemId(), FetchPlan.ITEM_ONLY);
+        assertEquals("ReadOnly Item 2", updated.getName());
+
+        // El mode clàssic (sessions read-write) continua disponible
+        Manager.setReadOnlyReads(false);
+        try {
+            assertEquals(1, Manager.getCartWithItems(cart.getCartId()).getItems().size());
+        } finally {
+            Manager.setReadOnlyReads(true);
+        }
+
+        // Cleanup
+        Manager.delete(Cart.class, cart.getCartId());
+    }
+
+    @Test
+    @Order(26)
+    public void testUnitOfWorkCommitsOrRollsBackEverything() {
+        // ACT: Cart + items + assignació en una sola transacció
+        Cart cart = Manager.fromTransaction(uow -> {
+            Cart c = uow.addCart("UoW");
+            Item a = uow.addItem("UoW A");
+            Item b = uow.addItem("UoW B");
+            uow.updateCart(c.getCartId(), c.getType(), new HashSet<>(Set.of(a, b)));
+            // Les lectures dins la unitat de treball ja veuen els canvis no confirmats
+            assertEquals(2, uow.getCart(c.getCartId(), FetchPlan.CART_WITH_ITEMS).getItems().size());
+            return c;
+        });
+
+        // ASSERT: Tot confirmat amb un sol commit
+        assertNotNull(cart);
+        assertEquals(2, Manager.countItems(cart.getCartId()));
+
+        // ACT: Un error a mig flux desfà també el que s'havia fet abans
+        // i arriba al cridador (no es confon amb un conflicte de concurrència)
+        int itemsBefore = Manager.findAll(Item.class).size();
+        IllegalStateException error = assertThrows(IllegalStateException.class, () -> Manager.inTransaction(uow -> {
+            uow.addItem("UoW perdut");
+            throw new IllegalStateException("Error simulat");
+        }));
+
+        // ASSERT
+        assertEquals("Error simulat", error.getMessage());
+        assertEquals(itemsBefore, Manager.findAll(Item.class).size(), "El rollback hauria de desfer l'addItem");
+        assertThrows(IllegalArgumentException.class, () -> Manager.fromTransaction(uow -> {
+            throw new IllegalArgumentException("Validació");
+        }));
+
+        // ACT: Lot llarg amb flush i clear periòdics (les entitats anteriors queden detached)
+        boolean batch = Manager.inTransaction(5, 10, uow -> {
+            for (int i = 0; i < 25; i++) {
+                uow.addItem("UoW lot " + i);
+            }
+            assertEquals(25, uow.getWriteCount());
+        });
+
+        // ASSERT
+        assertTrue(batch);
+        assertEquals(itemsBefore + 25, Manager.findAll(Item.class).size());
+
+        // Cleanup
+        Manager.findAll(Item.class).stream()
+            .filter(i -> i.getName().startsWith("UoW lot"))
+            .forEach(i -> Manager.delete(Item.class, i.getItemId()));
+        Manager.delete(Cart.class, cart.getCartId());
+    }
+
+    @Test
+    @Order(27)
+    public void testArchivedCartsAreReadFromTheArchive() throws InterruptedException {
+        // ARRANGE: Un cart "antic" amb items i un de recent creat després del tall
+        Manager.enableArchive();
+        Cart old = Manager.fromTransaction(uow -> {
+            Cart c = uow.addCart("Arxiu antic");
+            uow.updateCart(c.getCartId(), c.getType(),
+                new HashSet<>(Set.of(new Item("Arxiu A"), new Item("Arxiu B"))));
+            return c;
+        });
+        Thread.sleep(20);
+        Instant cutoff = Instant.now();
+        Thread.sleep(20);
+        Cart recent = Manager.addCart("Arxiu recent");
+
+        // ACT: Lots d'1 cart per provar la paginació
+        CartArchiver.Result result = Manager.archiveInactiveSince(cutoff, 1);
+
+        // ASSERT: El cart antic ja no és a les taules calentes...
+        assertTrue(result.carts() >= 1);
+        assertEquals(0, result.failedBatches());
+        assertTrue(Manager.findAll(Cart.class).stream().noneMatch(c -> c.getCartId().equals(old.getCartId())));
+        assertEquals(0, Manager.countItems(old.getCartId()));
+
+        // ...però les lectures per UUID el troben a l'arxiu, amb els seus items
+        Cart archived = Manager.findByUuid(FetchPlan.CART_WITH_ITEMS, old.getUuid());
+        assertNotNull(archived, "El cart arxivat s'hauria de trobar a l'arxiu");
+        assertEquals(2, archived.getItems().size());
+        String archivedItemUuid = archived.getItems().iterator().next().getUuid();
+        assertNotNull(Manager.findItemByUuid(archivedItemUuid));
+
+        // El cart recent continua a les taules calentes
+        assertNotNull(findCartById(recent.getCartId()));
+        Manager.delete(Cart.class, recent.getCartId());
+
+        // ID REUTILITZAT: SQLite (sense AUTOINCREMENT) pot donar a un cart nou l'ID d'un
+        // d'arxivat. Arxivar-lo no ha de trepitjar el primer.
+        Cart reused = Manager.addCart("Arxiu reutilitzat");
+        Thread.sleep(20);
+        assertEquals(0, Manager.archiveInactiveSince(Instant.now(), 1).failedBatches());
+        assertEquals(2, Manager.findByUuid(FetchPlan.CART_WITH_ITEMS, old.getUuid()).getItems().size());
+        assertNotNull(Manager.findCartByUuid(reused.getUuid()));
+
+        // REOBRIR: l'arxiu sobreviu a un reinici (hbm2ddl=update, no create)
+        Manager.close();
+        Manager.createSessionFactory();
+        Manager.enableArchive();
+        assertNotNull(Manager.findCartByUuid(old.getUuid()), "L'arxiu no s'ha d'esborrar en reobrir-lo");
+        assertNotNull(Manager.findCartByUuid(reused.getUuid()));
+    }
+
+    @Test
+    @Order(28)
+    public void testSearchItemsByNamePrefix() {
+        // ARRANGE
+        Item red = Manager.addItem("Poma vermella");
+        Item tree = Manager.addItem("Pomera del jardí");
+        Item pear = Manager.addItem("Pera conferència");
+
+        // ACT & ASSERT: Prefix d'una paraula
+        List<Long> pom = Manager.searchItems("pom", 10).stream().map(h -> h.itemId()).toList();
+        assertTrue(pom.containsAll(List.of(red.getItemId(), tree.getItemId())));
+        assertFalse(pom.contains(pear.getItemId()));
+
+        // Diverses paraules: totes han d'aparèixer (majúscules i accents no importen)
+        assertEquals(List.of(red.getItemId()),
+            Manager.searchItems("POMA verm", 10).stream().map(h -> h.itemId()).toList());
+        assertEquals(List.of(pear.getItemId()),
+            Manager.searchItems("conferencia", 10).stream().map(h -> h.itemId()).toList());
+
+        // Caràcters especials de la sintaxi de cerca es descarten
+        assertTrue(Manager.searchItems("\"*()", 10).isEmpty());
+
+        // L'índex segueix els canvis: UPDATE i DELETE
+        Manager.updateItem(pear.getItemId(), "Préssec");
+        assertTrue(Manager.searchItems("pera", 10).isEmpty());
+        assertEquals(pear.getItemId(), Manager.searchItems("pres", 10).get(0).itemId());
+        Manager.delete(Item.class, red.getItemId());
+        assertTrue(Manager.searchItems("vermella", 10).isEmpty());
+
+        // Cleanup
+        Manager.delete(Item.class, tree.getItemId());
+        Manager.delete(Item.class, pear.getItemId());
+    }
+
+    @Test
+    @Order(29)
+    public void testAggregateCountersMatchGroupBy() {
+        // ARRANGE: Comptadors incrementals a partir de l'estat actual
+        Manager.enableAggregateCounters();
+        assertEquals(Manager.computeAggregates(), Manager.getAggregates());
+        long orphansBefore = Manager.countOrphanItems();
+
+        // ACT: Altes, assignacions, moviments i esborrats
+        Cart a = Manager.addCart("Agregats");
+        Cart b = Manager.addCart("Agregats");
+        Item x = Manager.addItem("Agregat X");
+        Item y = Manager.addItem("Agregat Y");
+        assertEquals(orphansBefore + 2, Manager.countOrphanItems());
+
+        Manager.updateCart(a.getCartId(), a.getType(), new HashSet<>(Set.of(x, y)));
+        Manager.updateCart(b.getCartId(), "Agregats B", new HashSet<>(Set.of(x)));
+
+        // ASSERT: Comptadors == GROUP BY
+        CartAggregates counted = Manager.getAggregates();
+        assertEquals(Manager.computeAggregates(), counted);
+        assertEquals(1, counted.itemsIn(a.getCartId()));
+        assertEquals(1, counted.itemsIn(b.getCartId()));
+        assertEquals(1, Manager.countCartsOfType("Agregats"));
+        assertEquals(1, Manager.countCartsOfType("Agregats B"));
+        assertEquals(orphansBefore, Manager.countOrphanItems());
+
+        // Un rollback també desfà els comptadors
+        assertThrows(IllegalStateException.class, () -> Manager.inTransaction(uow -> {
+            uow.addCart("Agregats");
+            throw new IllegalStateException("Error simulat");
+        }));
+        assertEquals(1, Manager.countCartsOfType("Agregats"));
+
+        // Esborrar un cart (CASCADE als items) descompta cart, tipus i items
+        Manager.delete(Cart.class, a.getCartId());
+        assertEquals(Manager.computeAggregates(), Manager.getAggregates());
+        assertEquals(0, Manager.countCartsOfType("Agregats"));
+
+        // Cleanup
+        Manager.delete(Cart.class, b.getCartId());
+        assertEquals(Manager.computeAggregates(), Manager.getAggregates());
+    }
+
+    @Test
+    @Order(30)
+    public void testInMemoryEngineWithSnapshot() throws Exception {
+        // ARRANGE: Canviem a una BBDD en memòria nova (la del fitxer es tanca)
+        Manager.close();
+        Path snapshot = Files.createTempFile("cart-snapshot", ".db");
+        try {
+            Manager.createInMemorySessionFactory();
+            assertTrue(Manager.isInMemory());
+            assertTrue(Manager.findAll(Cart.class).isEmpty(), "La BBDD en memòria comença buida");
+
+            // Un sol factory per JVM: una segona BBDD en memòria sense close() es rebutja
+            assertThrows(IllegalStateException.class, Manager::createInMemorySessionFactory);
+
+            Cart cart = Manager.addCart("Memòria");
+            Manager.updateCart(cart.getCartId(), cart.getType(),
+                new HashSet<>(Set.of(new Item("Memòria A"), new Item("Memòria B"))));
+
+            // ACT: Snapshot a un fitxer i una BBDD en memòria nova a partir d'ell
+            assertTrue(Manager.snapshotTo(snapshot));
+            Manager.close();
+            Manager.createInMemorySessionFactory("hibernate.properties", snapshot);
+
+            // ASSERT: Les dades del snapshot hi són
+            Cart restored = Manager.getCartWithItems(cart.getCartId());
+            assertNotNull(restored);
+            assertEquals(2, restored.getItems().size());
+
+            // Els canvis posteriors es desfan en restaurar el snapshot (caches incloses)
+            Manager.delete(Cart.class, cart.getCartId());
+            assertNull(findCartById(cart.getCartId()));
+            assertTrue(Manager.restoreFrom(snapshot));
+            assertEquals(2, Manager.countItems(cart.getCartId()));
+        } finally {
+            Files.deleteIfExists(snapshot);
+            // La resta de tests tornen a la BBDD amb fitxer
+            Manager.close();
+            Manager.createSessionFactory();
+        }
+    }
+
+    @Test
+    @Order(31)
+    public void testSearchIndexSurvivesHbm2ddlUpdate() throws Exception {
+        // ARRANGE: Una BBDD pròpia amb hbm2ddl=update (la de producció habitual)
+        Path db = Files.createTempFile("search-update", ".db");
+        Properties properties = Manager.loadProperties("hibernate.properties");
+        properties.setProperty("hibernate.connection.url", "jdbc:sqlite:" + db);
+        properties.setProperty(AvailableSettings.HBM2DDL_AUTO, "update");
+        properties.setProperty(AvailableSettings.CACHE_REGION_PREFIX, "search-update");
+        try {
+            // 1a arrencada: crea les taules i items_fts
+            try (SessionFactory first = Manager.buildSessionFactory(properties);
+                 Session session = first.openSession()) {
+                session.beginTransaction();
+                session.persist(new Item("Préssec groc"));
+                session.getTransaction().commit();
+            }
+
+            // ACT: 2a arrencada sobre la mateixa BBDD: update ha de llegir l'esquema existent
+            try (SessionFactory second = Manager.buildSessionFactory(properties);
+                 Session session = second.openSession()) {
+                // ASSERT: L'índex continua funcionant
+                List<String> names = ItemSearch.search(session, "press", 10).stream()
+                    .map(ItemSearchHit::name).toList();
+                assertEquals(List.of("Préssec groc"), names);
+            }
+        } finally {
+            Files.deleteIfExists(db);
+        }
+    }
+
+    @Test
+    @Order(32)
+    public void testClosingAnotherFactoryKeepsManagerCaches() throws Exception {
+        // ARRANGE: Un segon SessionFactory a la mateixa JVM (com l'arxiu o un shard)
+        Path db = Files.createTempFile("second-factory", ".db");
+        Properties properties = Manager.loadProperties("hibernate.properties");
+        Manager.setJdbcUrl(properties, "jdbc:sqlite:" + db);
+        try {
+            SessionFactory other = Manager.buildSessionFactory(properties);
+            try (Session session = other.openSession()) {
+                session.beginTransaction();
+                session.persist(new Cart("Altre factory"));
+                session.getTransaction().commit();
+            }
+
+            // ACT: Tancar-lo tanca el seu CacheManager...
+            other.close();
+
+            // ASSERT: ...però no el de Manager (caché de natural-ids operativa)
+            Cart cart = Manager.addCart("Després de tancar un altre factory");
+            assertNotNull(cart, "Manager ha de poder escriure amb les seves caches");
+            assertEquals(cart.getCartId(), Manager.findCartByUuid(cart.getUuid()).getCartId());
+            assertEquals(cart.getCartId(), Manager.findCartByUuid(cart.getUuid()).getCartId(),
+                "La 2a cerca passa per la caché de natural-ids");
+
+            // Cleanup
+            Manager.delete(Cart.class, cart.getCartId());
+        } finally {
+            Files.deleteIfExists(db);
+        }
+    }
+
+    @Test
+    @Order(33)
+    public void testStaleVersionIsRejectedOnFlush() {
+        // OPTIMISTIC LOCKING DETERMINISTA: a SQLite dos escriptors simultanis xoquen
+        // abans amb SQLITE_BUSY (test 18); aquí les escriptures són seqüencials
+        // i només la comprovació de @Version evita el "lost update".
+        Item item = Manager.addItem("Versionat");
+        try (Session sessionA = Manager.getSessionFactory().openSession()) {
+            // ARRANGE: A llegeix l'item (versió 0) i el manté a la seva sessió
+            sessionA.beginTransaction();
+            Item staleCopy = sessionA.get(Item.class, item.getItemId());
+            sessionA.getTransaction().commit();
+
+            // B l'actualitza i confirma (versió 1)
+            assertTrue(Manager.updateItem(item.getItemId(), "Escriptor B"));
+
+            // ACT: A escriu sobre la seva còpia obsoleta
+            sessionA.beginTransaction();
+            staleCopy.setName("Escriptor A");
+            RuntimeException e = assertThrows(RuntimeException.class, sessionA::flush);
+            sessionA.getTransaction().rollback();
+
+            // ASSERT: Conflicte de versió, no de bloqueig
+            assertTrue(isStaleVersion(e), "Esperava OptimisticLockException/StaleStateException: " + e);
+        }
+        Item reloaded = findItemById(item.getItemId());
+        assertEquals("Escriptor B", reloaded.getName(), "L'escriptura de B no s'ha de perdre");
+        assertEquals(1, reloaded.getVersion().intValue());
+
+        // Cleanup
+        Manager.delete(Item.class, item.getItemId());
+    }
+
+    @Test
+    @Order(34)
+    public void testSqliteLockWaitIsShort() {
+        // Cada intent espera com a molt busy_timeout: els escriptors en conflicte fallen ràpid
+        try (Session session = Manager.getSessionFactory().openSession()) {
+            int busyTimeout = session.doReturningWork(conn -> {
+                try (var statement = conn.createStatement();
+                     var rs = statement.executeQuery("PRAGMA busy_timeout")) {
+                    rs.next();
+                    return rs.getInt(1);
+                }
+            });
+            assertEquals(250, busyTimeout);
+        }
+    }
+
+    @Test
+    @Order(35)
+    public void testEditingAnItemKeepsItsCartActive() throws InterruptedException {
+        // ARRANGE: Un cart amb un item i un cart sense activitat, tots dos d'abans del tall
+        Manager.enableArchive();
+        Cart active = Manager.fromTransaction(uow -> {
+            Cart c = uow.addCart("Actiu pels items");
+            uow.updateCart(c.getCartId(), c.getType(), new HashSet<>(Set.of(new Item("Item editat"))));
+            return c;
+        });
+        Cart idle = Manager.addCart("Sense activitat");
+        Long itemId = Manager.findByUuid(FetchPlan.CART_WITH_ITEMS, active.getUuid())
+            .getItems().iterator().next().getItemId();
+        Thread.sleep(20);
+        Instant cutoff = Instant.now();
+        Thread.sleep(20);
+
+        // ACT: Només s'edita l'item; després s'arxiva el que és anterior al tall
+        assertTrue(Manager.updateItem(itemId, "Item editat (v2)"));
+        assertEquals(0, Manager.archiveInactiveSince(cutoff, 10).failedBatches());
+
+        // ASSERT: El cart de l'item editat continua a les taules calentes
+        Cart reloaded = findCartById(active.getCartId());
+        assertNotNull(reloaded, "Editar un item és activitat del seu cart");
+        assertTrue(reloaded.getLastActivity().isAfter(cutoff));
+        assertNull(findCartById(idle.getCartId()), "El cart sense activitat s'ha arxivat");
+
+        // findAllByUuid, com findByUuid, troba també els arxivats
+        List<Cart> found = Manager.findAllByUuid(Cart.class, List.of(active.getUuid(), idle.getUuid(), "no-existeix"));
+        assertEquals(Set.of(active.getUuid(), idle.getUuid()),
+            found.stream().map(Cart::getUuid).collect(java.util.stream.Collectors.toSet()));
+    }
+
     // ═══════════════════════════════════════════════════════════════════
     // MÈTODES HELPER - Utilitats pels tests
     // ═══════════════════════════════════════════════════════════════════
@@ -338,6 +1032,16 @@ public class CartItemTest {
                 .orElse(null);                            // Retorna null si no troba
     }
 
+    private static boolean isStaleVersion(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof jakarta.persistence.OptimisticLockException
+                    || t instanceof org.hibernate.StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Cerca un Cart per ID usant Stream API.
      */
@@ -348,4 +1052,4 @@ public class CartItemTest {
                 .findFirst()
                 .orElse(null);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package com.project;
+
+import org.junit.jupiter.api.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests d'InMemoryDatabase: diverses BBDD en memòria obertes alhora (sense veure's
+ * entre elles ni tocar Manager) i snapshots que es tornen a obrir.
+ */
+public class InMemoryDatabaseTest {
+
+    @Test
+    public void testParallelDatabasesAreIsolated() throws Exception {
+        // ARRANGE: 4 fils, cadascun amb la seva BBDD, oberts i treballant A LA VEGADA
+        int workers = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        CountDownLatch allOpen = new CountDownLatch(workers);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int w = 0; w < workers; w++) {
+                String type = "Aïllat " + w;
+                results.add(pool.submit(() -> {
+                    try (InMemoryDatabase db = InMemoryDatabase.open()) {
+                        allOpen.countDown();
+                        assertTrue(allOpen.await(30, TimeUnit.SECONDS), "Les BBDD s'han d'obrir alhora");
+
+                        // ACT: Cada fil crea els seus carts amb items
+                        for (int i = 0; i < 5; i++) {
+                            assertTrue(db.inTransaction(uow -> {
+                                Cart cart = uow.addCart(type);
+                                uow.updateCart(cart.getCartId(), type, new HashSet<>(Set.of(new Item(type))));
+                            }));
+                        }
+                        return db.fromTransaction(uow -> uow.findAll(Cart.class).stream().map(Cart::getType).toList());
+                    }
+                }));
+            }
+
+            // ASSERT: Cada BBDD només veu els seus 5 carts
+            for (int w = 0; w < workers; w++) {
+                List<String> types = results.get(w).get(60, TimeUnit.SECONDS);
+                assertEquals(5, types.size());
+                assertEquals(Set.of("Aïllat " + w), new HashSet<>(types));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSnapshotReopensInANewDatabase() throws Exception {
+        Path snapshot = Files.createTempFile("in-memory-db", ".db");
+        try {
+            // ARRANGE
+            String uuid;
+            try (InMemoryDatabase db = InMemoryDatabase.open()) {
+                uuid = db.fromTransaction(uow -> uow.addCart("Snapshot")).getUuid();
+
+                // ACT
+                assertTrue(db.snapshotTo(snapshot));
+            }
+
+            // ASSERT: La BBDD reoberta des del snapshot té les dades; una de nova, no
+            try (InMemoryDatabase restored = InMemoryDatabase.open("hibernate.properties", snapshot);
+                 InMemoryDatabase empty = InMemoryDatabase.open()) {
+                assertEquals(List.of(uuid),
+                    restored.fromTransaction(uow -> uow.findAll(Cart.class).stream().map(Cart::getUuid).toList()));
+                assertTrue(empty.fromTransaction(uow -> uow.findAll(Cart.class)).isEmpty());
+            }
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+}
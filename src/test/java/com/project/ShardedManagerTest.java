@@ -0,0 +1,122 @@
+package com.project;
+
+import org.hibernate.Session;
+import org.hibernate.cfg.AvailableSettings;
+import org.junit.jupiter.api.*;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de ShardedManager: routing per UUID, moviment d'items entre shards
+ * i consultes SCATTER-GATHER sobre tots els shards.
+ */
+public class ShardedManagerTest {
+
+    private static final int SHARDS = 3;
+
+    @BeforeAll
+    public static void setup() {
+        ShardedManager.createSessionFactories(SHARDS);
+    }
+
+    @AfterAll
+    public static void cleanup() {
+        ShardedManager.close();
+    }
+
+    @Test
+    public void testCartsAndItemsLandOnTheirShard() {
+        // ARRANGE & ACT
+        Cart cart = ShardedManager.addCart("Shard routing");
+        Item item = ShardedManager.addItemToCart(cart.getUuid(), "Shard routing item");
+        assertNotNull(item);
+
+        // ASSERT: Cart i item només existeixen al shard hash(uuid del cart) % N
+        int owner = ShardedManager.shardFor(cart.getUuid());
+        for (int i = 0; i < SHARDS; i++) {
+            assertEquals(i == owner, existsCart(i, cart.getUuid()), "Cart al shard " + i);
+            assertEquals(i == owner, existsItem(i, item.getUuid()), "Item al shard " + i);
+        }
+    }
+
+    @Test
+    public void testUpdateCartMovesItemsFromAnotherShard() {
+        // ARRANGE: Un item solt que viu en un shard diferent del del cart
+        Cart cart = ShardedManager.addCart("Shard destí");
+        int owner = ShardedManager.shardFor(cart.getUuid());
+        Item loose = ShardedManager.addItem("Item viatger");
+        while (ShardedManager.shardFor(loose.getUuid()) == owner) {
+            loose = ShardedManager.addItem("Item viatger");
+        }
+        int source = ShardedManager.shardFor(loose.getUuid());
+
+        // ACT
+        assertTrue(ShardedManager.updateCart(cart.getUuid(), cart.getType(), new HashSet<>(Set.of(loose))));
+
+        // ASSERT: L'item és al cart (mateix uuid i nom) i ja no és al shard d'origen
+        Cart loaded = ShardedManager.getCartWithItems(cart.getUuid());
+        assertEquals(1, loaded.getItems().size());
+        Item moved = loaded.getItems().iterator().next();
+        assertEquals(loose.getUuid(), moved.getUuid());
+        assertEquals("Item viatger", moved.getName());
+        assertTrue(existsItem(owner, loose.getUuid()));
+        assertFalse(existsItem(source, loose.getUuid()), "L'original s'hauria d'haver esborrat");
+    }
+
+    @Test
+    public void testFindAllGathersEveryShard() {
+        // ARRANGE: Carts fins que tots els shards en tenen almenys un
+        Set<Integer> covered = new HashSet<>();
+        Set<String> uuids = new HashSet<>();
+        while (covered.size() < SHARDS) {
+            Cart cart = ShardedManager.addCart("Scatter");
+            covered.add(ShardedManager.shardFor(cart.getUuid()));
+            uuids.add(cart.getUuid());
+        }
+
+        // ACT
+        List<Cart> all = ShardedManager.findAll(Cart.class);
+
+        // ASSERT
+        Set<String> found = new HashSet<>();
+        all.forEach(c -> found.add(c.getUuid()));
+        assertTrue(found.containsAll(uuids), "El resultat ha d'incloure els carts de tots els shards");
+    }
+
+    @Test
+    public void testShardUrlFromJakartaUrlKey() {
+        // ARRANGE: Propietats només amb la clau jakarta.persistence.jdbc.url
+        Properties base = new Properties();
+        base.setProperty(AvailableSettings.JAKARTA_JDBC_URL, "jdbc:sqlite:./data/shop.db");
+
+        // ACT
+        Properties shard = ShardedManager.shardProperties(base, 2);
+
+        // ASSERT: Les dues claus apunten al fitxer del shard
+        assertEquals("jdbc:sqlite:./data/shop-shard2.db", Manager.jdbcUrl(shard));
+        assertEquals("jdbc:sqlite:./data/shop-shard2.db", shard.getProperty("hibernate.connection.url"));
+        assertEquals("shard2", shard.getProperty(AvailableSettings.CACHE_REGION_PREFIX));
+        assertThrows(IllegalArgumentException.class, () -> ShardedManager.shardProperties(new Properties(), 0));
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // MÈTODES HELPER
+    // ═══════════════════════════════════════════════════════════════════
+
+    private static boolean existsCart(int shard, String uuid) {
+        try (Session session = ShardedManager.getShard(shard).openSession()) {
+            return session.bySimpleNaturalId(Cart.class).load(uuid) != null;
+        }
+    }
+
+    private static boolean existsItem(int shard, String uuid) {
+        try (Session session = ShardedManager.getShard(shard).openSession()) {
+            return session.bySimpleNaturalId(Item.class).load(uuid) != null;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.project.bench;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de LatencyHistogram: valors exactes fins a 15 µs, buckets log-lineals
+ * a partir de 16 (límits a les potències de 2), combinació amb add() i percentils.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testValuesUpTo15AreExact() {
+        for (long value = 0; value < 16; value++) {
+            assertEquals(value, single(value), "Valor " + value);
+        }
+    }
+
+    @Test
+    public void testPowerOfTwoBoundaries() {
+        // A partir de 16: 16 buckets per potència de 2 (amplada 2^msb / 16)
+        assertEquals(16, single(16));
+        assertEquals(31, single(31));
+        assertEquals(32, single(32));
+        assertEquals(32, single(33), "33 cau al bucket [32, 34)");
+        assertEquals(62, single(63));
+        assertEquals(64, single(64));
+        assertEquals(1024, single(1024));
+        assertEquals(1024, single(1024 + 63), "Bucket [1024, 1088)");
+        assertEquals(1088, single(1024 + 64));
+
+        // Error relatiu màxim ≤ 1/16 també als valors grans (i sense desbordar l'array)
+        long big = 1L << 40;
+        assertEquals(big, single(big + (big / 16) - 1));
+        assertTrue(single(Long.MAX_VALUE) >= Long.MAX_VALUE - Long.MAX_VALUE / 16);
+    }
+
+    @Test
+    public void testNegativeValuesCountAsZero() {
+        assertEquals(0, single(-5));
+    }
+
+    @Test
+    public void testPercentiles() {
+        // ARRANGE: 1..100 µs
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 100; value++) {
+            histogram.record(value);
+        }
+
+        // ASSERT: el percentil és el límit inferior del bucket del valor de rang ceil(n * p)
+        assertEquals(100, histogram.count());
+        assertEquals(100, histogram.max());
+        assertEquals(1, histogram.percentile(0));
+        assertEquals(50, histogram.percentile(50), "50 és el límit inferior del bucket [50, 52)");
+        assertEquals(88, histogram.percentile(90), "90 cau al bucket [88, 92)");
+        assertEquals(96, histogram.percentile(99), "99 cau al bucket [96, 100)");
+        assertEquals(100, histogram.percentile(100));
+        assertEquals(0, new LatencyHistogram().percentile(50), "Buit: 0");
+    }
+
+    @Test
+    public void testAddMergesCountsAndMax() {
+        // ARRANGE: dos fils amb latències diferents
+        LatencyHistogram fast = new LatencyHistogram();
+        LatencyHistogram slow = new LatencyHistogram();
+        for (int i = 0; i < 90; i++) fast.record(10);
+        for (int i = 0; i < 10; i++) slow.record(5000);
+
+        // ACT
+        LatencyHistogram total = new LatencyHistogram();
+        total.add(fast);
+        total.add(slow);
+
+        // ASSERT
+        assertEquals(100, total.count());
+        assertEquals(5000, total.max());
+        assertEquals(10, total.percentile(90));
+        assertEquals(4864, total.percentile(91), "5000 cau al bucket [4864, 5120)");
+        assertEquals(90, fast.count(), "add() no modifica l'origen");
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // MÈTODES HELPER
+    // ═══════════════════════════════════════════════════════════════════
+
+    // Valor que reporta l'histograma (límit inferior del bucket) per un únic registre
+    private static long single(long micros) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(micros);
+        return histogram.percentile(100);
+    }
+}
@@ -0,0 +1,60 @@
+package com.project.index;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de CartItemIndex sense BBDD: callbacks post-commit que arriben desordenats
+ * (es descarten per @Version) i consultes amb NO_CART.
+ */
+public class CartItemIndexTest {
+
+    @Test
+    public void testLateUpdatesAreDiscarded() {
+        // ARRANGE: Item 1 creat al cart 10 (versió 0)
+        CartItemIndex index = new CartItemIndex();
+        index.insertItem(1, 10, 0);
+
+        // ACT: Dos commits el mouen (v1 → cart 20, v2 → cart 30) però arriben al revés
+        index.setCart(1, 30, 2);
+        index.setCart(1, 20, 1);
+
+        // ASSERT: Guanya l'últim commit, no l'últim callback
+        assertEquals(30, index.cartOf(1));
+        assertEquals(0, index.countItems(20));
+        assertArrayEquals(new long[] { 1 }, index.itemsOf(30));
+    }
+
+    @Test
+    public void testLateUpdateDoesNotReviveADeletedItem() {
+        // ARRANGE
+        CartItemIndex index = new CartItemIndex();
+        index.insertItem(1, 10, 0);
+
+        // ACT: L'esborrat (amb la versió de l'update v1) arriba abans que el mateix update
+        index.removeItem(1, 1);
+        index.setCart(1, 20, 1);
+
+        // ASSERT
+        assertEquals(CartItemIndex.NO_CART, index.cartOf(1));
+        assertEquals(0, index.size());
+
+        // Un item NOU amb l'ID reutilitzat sí que s'aplica
+        index.insertItem(1, 40, 0);
+        assertEquals(40, index.cartOf(1));
+    }
+
+    @Test
+    public void testQueriesWithNoCart() {
+        // itemsOf(cartOf(itemSenseCart)): NO_CART és la clau reservada de les taules
+        CartItemIndex index = new CartItemIndex();
+        index.insertItem(1, CartItemIndex.NO_CART, 0);
+        index.insertItem(2, 10, 0);
+
+        assertEquals(CartItemIndex.NO_CART, index.cartOf(1));
+        assertArrayEquals(new long[0], index.itemsOf(index.cartOf(1)));
+        assertEquals(0, index.countItems(CartItemIndex.NO_CART));
+        assertFalse(index.contains(CartItemIndex.NO_CART, 1));
+    }
+}
@@ -0,0 +1,78 @@
+package com.project.index;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de LongListHashMap: creixement de la taula i de les llistes, esborrat amb
+ * backward-shift que dona la volta al final de la taula i la clau reservada 0.
+ */
+public class LongListHashMapTest {
+
+    @Test
+    public void testGrowsTableAndLists() {
+        // ARRANGE & ACT: 2.000 claus amb 1..10 elements cadascuna
+        LongListHashMap map = new LongListHashMap(4);
+        for (long key = 1; key <= 2_000; key++) {
+            for (long element = 1; element <= key % 10 + 1; element++) {
+                map.add(key, key * 100 + element);
+            }
+        }
+
+        // ASSERT
+        assertEquals(2_000, map.size());
+        for (long key = 1; key <= 2_000; key++) {
+            int count = (int) (key % 10 + 1);
+            assertEquals(count, map.count(key));
+            long[] elements = map.get(key);
+            assertEquals(count, elements.length);
+            for (int e = 0; e < count; e++) {
+                assertEquals(key * 100 + e + 1, elements[e]);
+            }
+        }
+    }
+
+    @Test
+    public void testRemovingTheLastElementShiftsBackAcrossTheEndOfTheTable() {
+        // ARRANGE: Tres claus amb posició ideal 7 en una taula de 8 (posicions 7, 0 i 1)
+        LongListHashMap map = new LongListHashMap(4);
+        long[] keys = LongLongHashMapTest.keysWithSlot(7, 8, 3);
+        for (long key : keys) {
+            map.add(key, key + 1);
+            map.add(key, key + 2);
+        }
+
+        // ACT: Buidar la llista de la primera clau l'elimina de la taula
+        map.removeElement(keys[0], keys[0] + 1);
+        assertEquals(1, map.count(keys[0]));
+        map.removeElement(keys[0], keys[0] + 2);
+
+        // ASSERT
+        assertEquals(2, map.size());
+        assertEquals(0, map.count(keys[0]));
+        assertArrayEquals(new long[] { keys[1] + 1, keys[1] + 2 }, map.get(keys[1]));
+        assertArrayEquals(new long[] { keys[2] + 1, keys[2] + 2 }, map.get(keys[2]));
+
+        // remove(key) també recol·loca el grup
+        map.remove(keys[1]);
+        assertTrue(map.contains(keys[2], keys[2] + 2));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testKeyZeroIsReserved() {
+        // ARRANGE: Una taula amb posicions buides (marcades amb la clau 0)
+        LongListHashMap map = new LongListHashMap(4);
+        map.add(3, 30);
+
+        // ASSERT: La clau 0 no troba cap posició buida com si fos seva
+        assertEquals(0, map.count(0));
+        assertArrayEquals(new long[0], map.get(0));
+        assertFalse(map.contains(0, 30));
+        map.remove(0);
+        map.removeElement(0, 30);
+        assertEquals(1, map.size());
+        assertThrows(IllegalArgumentException.class, () -> map.add(0, 1));
+    }
+}
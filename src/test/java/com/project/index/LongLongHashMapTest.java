@@ -0,0 +1,112 @@
+package com.project.index;
+
+import org.junit.jupiter.api.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests de LongLongHashMap: creixement, esborrat amb backward-shift (també quan el
+ * grup dona la volta al final de la taula) i la clau reservada 0.
+ */
+public class LongLongHashMapTest {
+
+    private static final long MISSING = -1L;
+
+    @Test
+    public void testGrowsAndKeepsEveryEntry() {
+        // ARRANGE & ACT: Molt més del que cap a la capacitat inicial
+        LongLongHashMap map = new LongLongHashMap(4);
+        int initialCapacity = map.capacity();
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals(MISSING, map.put(key, key * 10, MISSING));
+        }
+
+        // ASSERT
+        assertEquals(10_000, map.size());
+        assertTrue(map.capacity() > initialCapacity, "La taula hauria d'haver crescut");
+        assertTrue(map.size() <= map.capacity() * 3 / 4, "Factor de càrrega ≤ 0,75");
+        for (long key = 1; key <= 10_000; key++) {
+            assertEquals(key * 10, map.get(key, MISSING));
+        }
+        assertEquals(MISSING, map.get(10_001, MISSING));
+    }
+
+    @Test
+    public void testRemoveShiftsBackAcrossTheEndOfTheTable() {
+        // ARRANGE: Tres claus amb la mateixa posició ideal, l'ÚLTIMA de la taula:
+        // ocupen les posicions 7, 0 i 1 (el grup dona la volta)
+        LongLongHashMap map = new LongLongHashMap(4);
+        assertEquals(8, map.capacity());
+        long[] keys = keysWithSlot(7, 8, 3);
+        for (long key : keys) map.put(key, key + 1, MISSING);
+
+        // ACT: Esborrar la primera obliga a moure les altres dues cap enrere (0 → 7, 1 → 0)
+        assertEquals(keys[0] + 1, map.remove(keys[0], MISSING));
+
+        // ASSERT: Les altres es continuen trobant i la primera ja no
+        assertEquals(MISSING, map.get(keys[0], MISSING));
+        assertEquals(keys[1] + 1, map.get(keys[1], MISSING));
+        assertEquals(keys[2] + 1, map.get(keys[2], MISSING));
+        assertEquals(2, map.size());
+
+        // Esborrar la del mig tampoc trenca la cadena
+        map.remove(keys[1], MISSING);
+        assertEquals(keys[2] + 1, map.get(keys[2], MISSING));
+        assertEquals(MISSING, map.remove(keys[1], MISSING));
+    }
+
+    @Test
+    public void testRandomOperationsMatchHashMap() {
+        // Model de referència: HashMap amb claus d'un rang petit (moltes col·lisions i esborrats)
+        LongLongHashMap map = new LongLongHashMap(4);
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int op = 0; op < 50_000; op++) {
+            long key = 1 + random.nextInt(500);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.getOrDefault(key, MISSING), map.remove(key, MISSING));
+                expected.remove(key);
+            } else {
+                long value = random.nextLong(1_000_000);
+                Long previous = expected.put(key, value);
+                assertEquals(previous == null ? MISSING : previous, map.put(key, value, MISSING));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (long key = 1; key <= 500; key++) {
+            assertEquals(expected.getOrDefault(key, MISSING), map.get(key, MISSING));
+        }
+    }
+
+    @Test
+    public void testKeyZeroIsReserved() {
+        // ARRANGE: La posició buida es marca amb 0: no pot "coincidir" amb la clau 0
+        LongLongHashMap map = new LongLongHashMap(4);
+        map.put(5, 50, MISSING);
+
+        // ASSERT
+        assertEquals(MISSING, map.get(0, MISSING));
+        assertEquals(MISSING, map.remove(0, MISSING));
+        assertThrows(IllegalArgumentException.class, () -> map.put(0, 1, MISSING));
+        assertEquals(1, map.size());
+    }
+
+    // ═══════════════════════════════════════════════════════════════════
+    // MÈTODES HELPER
+    // ═══════════════════════════════════════════════════════════════════
+
+    // Claus amb aquesta posició ideal (mateixa barreja de Fibonacci que els mapes)
+    static long[] keysWithSlot(int slot, int capacity, int count) {
+        long[] keys = new long[count];
+        int found = 0;
+        for (long key = 1; found < count; key++) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            if (((int) (h ^ (h >>> 32)) & (capacity - 1)) == slot) keys[found++] = key;
+        }
+        return keys;
+    }
+}